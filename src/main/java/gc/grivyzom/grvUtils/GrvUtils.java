@@ -10,7 +10,13 @@ import com.velocitypowered.api.proxy.ProxyServer;
 import gc.grivyzom.grvUtils.redis.RedisManager;
 import gc.grivyzom.grvUtils.redis.RedisMessenger;
 import gc.grivyzom.grvUtils.redis.RedisCache;
+import gc.grivyzom.grvUtils.command.MetricsCommand;
 import gc.grivyzom.grvUtils.config.ConfigManager;
+import gc.grivyzom.grvUtils.leaderboard.LeaderboardManager;
+import gc.grivyzom.grvUtils.metrics.MetricsHttpServer;
+import gc.grivyzom.grvUtils.player.PlayerPrefetchRegistry;
+import gc.grivyzom.grvUtils.presence.PresenceIndex;
+import gc.grivyzom.grvUtils.scheduler.ClusterScheduler;
 import org.slf4j.Logger;
 
 import java.nio.file.Path;
@@ -40,6 +46,11 @@ public class GrvUtils {
     private RedisManager redisManager;
     private RedisMessenger redisMessenger;
     private RedisCache redisCache;
+    private PlayerPrefetchRegistry prefetchRegistry;
+    private LeaderboardManager leaderboardManager;
+    private ClusterScheduler clusterScheduler;
+    private PresenceIndex presenceIndex;
+    private MetricsHttpServer metricsServer;
 
     @Subscribe
     public void onProxyInitialization(ProxyInitializeEvent event) {
@@ -53,21 +64,45 @@ public class GrvUtils {
             configManager = new ConfigManager(this);
             configManager.loadConfig();
 
-            // Inicializar Redis
+            // Inicializar Redis; la conexión se establece en segundo plano
             redisManager = new RedisManager(this);
             redisManager.initialize();
 
-            // Inicializar sistemas Redis avanzados
-            if (redisManager.isConnected()) {
-                redisMessenger = new RedisMessenger(this);
-                redisCache = new RedisCache(this);
+            // Los sistemas Redis avanzados se crean ya y esperan a la conexión; con Redis
+            // deshabilitado funcionan igual sobre el almacenamiento en memoria
+            redisMessenger = new RedisMessenger(this);
+            redisCache = new RedisCache(this);
 
-                // Registrar algunos handlers de ejemplo
-                registerExampleHandlers();
+            // Precarga de datos de jugadores durante el login
+            prefetchRegistry = new PlayerPrefetchRegistry(this);
+            server.getEventManager().register(this, prefetchRegistry);
 
-                logger.info("§a✓ §fSistemas Redis avanzados inicializados");
+            leaderboardManager = new LeaderboardManager(this);
+
+            // Tareas periódicas que sólo debe ejecutar un proxy de la red
+            clusterScheduler = new ClusterScheduler(this);
+
+            // Ubicación de los jugadores en toda la red
+            if (configManager.isPresenceEnabled()) {
+                presenceIndex = new PresenceIndex(this);
+                server.getEventManager().register(this, presenceIndex);
+            }
+
+            // Registrar algunos handlers de ejemplo
+            registerExampleHandlers();
+
+            // Comando y endpoint de métricas
+            server.getCommandManager().register(
+                    server.getCommandManager().metaBuilder("grvmetrics").plugin(this).build(),
+                    new MetricsCommand(this)
+            );
+            if (configManager.isMetricsEndpointEnabled()) {
+                metricsServer = new MetricsHttpServer(this);
+                metricsServer.start();
             }
 
+            logger.info("§a✓ §fSistemas Redis avanzados inicializados");
+
             logger.info("§a✓ §fPlugin iniciado correctamente");
             logger.info("§b▶ §fVersión: §e0.1-SNAPSHOT");
             logger.info("§b▶ §fAutor: §eGriVyZom");
@@ -82,6 +117,36 @@ public class GrvUtils {
         printShutdownBanner();
 
         try {
+            // Detener el endpoint de métricas
+            if (metricsServer != null) {
+                metricsServer.stop();
+            }
+
+            // Ceder el liderazgo del planificador a otro proxy
+            if (clusterScheduler != null) {
+                clusterScheduler.shutdown();
+            }
+
+            // Retirar a nuestros jugadores del índice de presencia
+            if (presenceIndex != null) {
+                presenceIndex.shutdown();
+            }
+
+            // Enviar puntuaciones pendientes
+            if (leaderboardManager != null) {
+                leaderboardManager.shutdown();
+            }
+
+            // Cerrar suscripciones de mensajería
+            if (redisMessenger != null) {
+                redisMessenger.shutdown();
+            }
+
+            // Guardar snapshot de la caché local
+            if (redisCache != null) {
+                redisCache.shutdown();
+            }
+
             // Cerrar conexiones Redis
             if (redisManager != null) {
                 redisManager.shutdown();
@@ -172,4 +237,24 @@ public class GrvUtils {
     public RedisCache getRedisCache() {
         return redisCache;
     }
+
+    public PlayerPrefetchRegistry getPrefetchRegistry() {
+        return prefetchRegistry;
+    }
+
+    public LeaderboardManager getLeaderboardManager() {
+        return leaderboardManager;
+    }
+
+    public ClusterScheduler getClusterScheduler() {
+        return clusterScheduler;
+    }
+
+    public PresenceIndex getPresenceIndex() {
+        return presenceIndex;
+    }
+
+    public MetricsHttpServer getMetricsServer() {
+        return metricsServer;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,264 @@
+package gc.grivyzom.grvUtils.cache;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Snapshot en disco de la caché local, leído mediante un archivo mapeado en memoria.
+ *
+ * Formato: cabecera (magic, versión) seguida de registros
+ * [expiresAt:long][keyLen:int][key][valueLen:int][value]. Un valueLen negativo
+ * marca la clave como eliminada y el último registro de una clave prevalece.
+ * La lectura acepta registros añadidos al final y marcas de borrado, pero
+ * {@link #write} siempre reescribe el archivo completo con las entradas vigentes
+ * y nunca emite marcas: cada guardado es también una compactación.
+ *
+ * Mientras está cargado, el archivo sigue mapeado. Antes de sustituirlo, write
+ * pasa las entradas pendientes a la caché local y libera el mapeo, porque en
+ * Windows no se puede reemplazar un archivo mapeado.
+ */
+public class CacheSnapshot {
+
+    private static final int MAGIC = 0x47525643; // "GRVC"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_OVERHEAD = 16;
+
+    private final MappedByteBuffer buffer;
+    private final Map<String, Slot> index;
+    // Lectores del buffer frente a close(): tras liberar el mapeo no se puede tocar
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private boolean closed;
+
+    private CacheSnapshot(MappedByteBuffer buffer, Map<String, Slot> index) {
+        this.buffer = buffer;
+        this.index = index;
+    }
+
+    /**
+     * Mapea el archivo e indexa sus claves; los valores se decodifican al leerlos.
+     * Devuelve null si el archivo no existe o no es un snapshot válido.
+     */
+    public static CacheSnapshot load(Path file) throws IOException {
+        if (!Files.exists(file)) return null;
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) return null;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return null;
+
+        long now = System.currentTimeMillis();
+        Map<String, Slot> index = new ConcurrentHashMap<>();
+
+        try {
+            while (buffer.remaining() >= RECORD_OVERHEAD) {
+                long expiresAt = buffer.getLong();
+                int keyLength = buffer.getInt();
+                // Una longitud corrupta no debe reservar más de lo que queda en el archivo
+                if (keyLength < 0 || keyLength > buffer.remaining() - Integer.BYTES) break;
+
+                byte[] keyBytes = new byte[keyLength];
+                buffer.get(keyBytes);
+                String key = new String(keyBytes, StandardCharsets.UTF_8);
+
+                int valueLength = buffer.getInt();
+                if (valueLength > buffer.remaining()) break;
+
+                // Los registros eliminados o caducados también ocupan sus bytes de valor
+                int position = buffer.position();
+                if (valueLength >= 0) {
+                    buffer.position(position + valueLength);
+                }
+
+                if (valueLength < 0 || expiresAt <= now) {
+                    index.remove(key);
+                    continue;
+                }
+                index.put(key, new Slot(position, valueLength, expiresAt));
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            // Registro final incompleto: se conserva lo leído hasta ese punto
+        }
+
+        return new CacheSnapshot(buffer, index);
+    }
+
+    /**
+     * Escribe todas las entradas vigentes de la caché en un archivo temporal
+     * mapeado y lo sustituye de forma atómica. Si la caché tiene un snapshot
+     * asociado, lo suelta y libera su mapeo antes de sustituir el archivo.
+     */
+    public static int write(Path file, LocalCache cache) throws IOException {
+        List<byte[]> keys = new ArrayList<>();
+        List<byte[]> values = new ArrayList<>();
+        List<Long> expirations = new ArrayList<>();
+
+        cache.forEachLive((key, value, expiresAt) -> {
+            keys.add(key.getBytes(StandardCharsets.UTF_8));
+            values.add(value.getBytes(StandardCharsets.UTF_8));
+            expirations.add(expiresAt);
+        });
+
+        long size = HEADER_SIZE;
+        for (int i = 0; i < keys.size(); i++) {
+            size += RECORD_OVERHEAD + keys.get(i).length + values.get(i).length;
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+
+            for (int i = 0; i < keys.size(); i++) {
+                out.putLong(expirations.get(i));
+                out.putInt(keys.get(i).length);
+                out.put(keys.get(i));
+                out.putInt(values.get(i).length);
+                out.put(values.get(i));
+            }
+            out.force();
+            unmap(out);
+        }
+
+        CacheSnapshot previous = cache.detachSnapshot();
+        if (previous != null) {
+            previous.close();
+        }
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return keys.size();
+    }
+
+    /**
+     * Extrae una entrada del snapshot; cada clave se decodifica una sola vez
+     */
+    Record take(String key, long now) {
+        Slot slot = index.remove(key);
+        if (slot == null || slot.expiresAt <= now) return null;
+
+        lock.readLock().lock();
+        try {
+            if (closed) return null;
+            return new Record(decode(slot), slot.expiresAt);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Olvida una entrada porque el valor local la ha sustituido
+     */
+    void discard(String key) {
+        index.remove(key);
+    }
+
+    void forEachPending(long now, LocalCache.EntryVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            if (closed) return;
+            for (Map.Entry<String, Slot> entry : index.entrySet()) {
+                Slot slot = entry.getValue();
+                if (slot.expiresAt > now) {
+                    visitor.visit(entry.getKey(), decode(slot), slot.expiresAt);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Libera el mapeo del archivo; las entradas que queden sin leer se pierden
+     */
+    void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) return;
+            closed = true;
+            index.clear();
+            unmap(buffer);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean isClosed() {
+        lock.readLock().lock();
+        try {
+            return closed;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int pendingCount() {
+        return index.size();
+    }
+
+    private String decode(Slot slot) {
+        byte[] bytes = new byte[slot.length];
+        buffer.get(slot.position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Libera un buffer mapeado sin esperar al recolector. Si la JVM no lo permite,
+     * el mapeo se libera cuando el buffer se recolecte.
+     */
+    private static void unmap(ByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(field.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException ignored) {
+        }
+    }
+
+    static final class Record {
+        private final String value;
+        private final long expiresAt;
+
+        private Record(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        String getValue() { return value; }
+        long getExpiresAt() { return expiresAt; }
+    }
+
+    private static final class Slot {
+        private final int position;
+        private final int length;
+        private final long expiresAt;
+
+        private Slot(int position, int length, long expiresAt) {
+            this.position = position;
+            this.length = length;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
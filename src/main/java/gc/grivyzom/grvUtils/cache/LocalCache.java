@@ -0,0 +1,180 @@
+package gc.grivyzom.grvUtils.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caché en memoria del proceso con expiración por entrada. Se usa delante de
+ * Redis para servir lecturas repetidas sin ida y vuelta por la red.
+ */
+public class LocalCache {
+
+    private final Map<String, Entry> entries;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private volatile CacheSnapshot snapshot;
+
+    public LocalCache(int maxEntries, long ttlMillis) {
+        this.entries = new ConcurrentHashMap<>();
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Asocia un snapshot cargado desde disco; sus entradas se leen bajo demanda
+     */
+    public void attachSnapshot(CacheSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public String get(String key) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+
+        if (entry == null) {
+            entry = loadFromSnapshot(key, now);
+            if (entry == null) return null;
+        }
+
+        if (entry.expiresAt <= now) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Guarda un valor; ttlSeconds > 0 acota la expiración local a la de Redis
+     */
+    public void put(String key, String value, int ttlSeconds) {
+        long now = System.currentTimeMillis();
+        long expiresAt = now + ttlMillis;
+        if (ttlSeconds > 0) {
+            expiresAt = Math.min(expiresAt, now + ttlSeconds * 1000L);
+        }
+
+        put(key, value, expiresAt);
+    }
+
+    private void put(String key, String value, long expiresAt) {
+        entries.put(key, new Entry(value, expiresAt));
+        if (snapshot != null) {
+            snapshot.discard(key);
+        }
+
+        if (entries.size() > maxEntries) {
+            evict();
+        }
+    }
+
+    public void remove(String key) {
+        entries.remove(key);
+        if (snapshot != null) {
+            snapshot.discard(key);
+        }
+    }
+
+    /**
+     * Acota la expiración local tras un EXPIRE sobre la clave
+     */
+    public void expire(String key, int seconds) {
+        long expiresAt = System.currentTimeMillis() + seconds * 1000L;
+        entries.computeIfPresent(key, (k, entry) ->
+                entry.expiresAt <= expiresAt ? entry : new Entry(entry.value, expiresAt));
+        if (snapshot != null) {
+            snapshot.discard(key);
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        CacheSnapshot current = snapshot;
+        snapshot = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * Copia a memoria las entradas del snapshot que siguen sin leer y lo suelta,
+     * para que se pueda liberar el archivo mapeado
+     * @return el snapshot que estaba asociado, o null
+     */
+    CacheSnapshot detachSnapshot() {
+        CacheSnapshot current = snapshot;
+        if (current == null) return null;
+
+        current.forEachPending(System.currentTimeMillis(), (key, value, expiresAt) ->
+                entries.putIfAbsent(key, new Entry(value, expiresAt)));
+        snapshot = null;
+
+        if (entries.size() > maxEntries) {
+            evict();
+        }
+        return current;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Recorre las entradas vigentes, incluidas las que siguen sin leer del snapshot
+     */
+    public void forEachLive(EntryVisitor visitor) {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            Entry entry = e.getValue();
+            if (entry.expiresAt > now) {
+                visitor.visit(e.getKey(), entry.value, entry.expiresAt);
+            }
+        }
+
+        if (snapshot != null) {
+            snapshot.forEachPending(now, (key, value, expiresAt) -> {
+                if (!entries.containsKey(key)) {
+                    visitor.visit(key, value, expiresAt);
+                }
+            });
+        }
+    }
+
+    private Entry loadFromSnapshot(String key, long now) {
+        if (snapshot == null) return null;
+
+        CacheSnapshot.Record record = snapshot.take(key, now);
+        if (record == null) return null;
+
+        Entry entry = new Entry(record.getValue(), record.getExpiresAt());
+        Entry existing = entries.putIfAbsent(key, entry);
+        return existing != null ? existing : entry;
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+
+        // Si sigue lleno, descartar entradas arbitrarias hasta volver al límite
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(String key, String value, long expiresAt);
+    }
+
+    private static final class Entry {
+        private final String value;
+        private final long expiresAt;
+
+        private Entry(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package gc.grivyzom.grvUtils.cache;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Filtro de Bloom sobre las claves de la caché. Si dice que una clave no está,
+ * no se ha escrito a través de RedisCache desde la última reconstrucción y la
+ * consulta a Redis se puede evitar. Las claves escritas por otros medios, o cuyo
+ * aviso desde otro proxy se perdió, quedan negadas hasta la siguiente
+ * reconstrucción o hasta que una verificación las encuentre. Las eliminaciones no
+ * se pueden quitar del filtro; se limpian al reconstruirlo.
+ */
+public class NegativeLookupFilter {
+
+    private final int bitCount;
+    private final int hashCount;
+    private volatile AtomicLongArray bits;
+    private volatile AtomicLongArray rebuilding;
+    private volatile boolean ready;
+
+    private final LongAdder insertions = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder definiteMisses = new LongAdder();
+    private final LongAdder positiveMisses = new LongAdder();
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder wrongNegatives = new LongAdder();
+    private final LongAdder bypasses = new LongAdder();
+
+    public NegativeLookupFilter(long expectedKeys, double falsePositiveRate) {
+        long n = Math.max(1, expectedKeys);
+        double p = Math.min(0.5, Math.max(1e-6, falsePositiveRate));
+        long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+
+        this.bitCount = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, m));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        this.bits = new AtomicLongArray((bitCount + 63) / 64);
+    }
+
+    public void put(String key) {
+        long hash = hash(key);
+        set(bits, hash);
+
+        AtomicLongArray target = rebuilding;
+        if (target != null) {
+            set(target, hash);
+        }
+        insertions.increment();
+    }
+
+    public void putAll(List<String> keys) {
+        for (String key : keys) {
+            put(key);
+        }
+    }
+
+    /**
+     * true si la clave puede existir; false si seguro que no existe.
+     * Mientras el filtro no está listo siempre devuelve true.
+     */
+    public boolean mightContain(String key) {
+        if (!ready) {
+            bypasses.increment();
+            return true;
+        }
+
+        queries.increment();
+        long hash = hash(key);
+        AtomicLongArray current = bits;
+
+        for (int i = 1; i <= hashCount; i++) {
+            int index = index(hash, i);
+            if ((current.get(index >>> 6) & (1L << index)) == 0) {
+                definiteMisses.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Registra que el filtro dijo "puede existir" y Redis no tenía la clave. Incluye
+     * los falsos positivos del filtro y las claves eliminadas o caducadas desde la
+     * última reconstrucción, que no se pueden distinguir.
+     */
+    public void recordPositiveMiss() {
+        positiveMisses.increment();
+    }
+
+    /**
+     * Registra la comprobación en Redis de un "no existe"; found indica que era falso
+     */
+    public void recordVerification(boolean found) {
+        verifications.increment();
+        if (found) wrongNegatives.increment();
+    }
+
+    /**
+     * Empieza una reconstrucción; las escrituras concurrentes van a ambos arrays
+     */
+    public void beginRebuild() {
+        rebuilding = new AtomicLongArray(bits.length());
+    }
+
+    public void addRebuilt(String key) {
+        AtomicLongArray target = rebuilding;
+        if (target != null) {
+            set(target, hash(key));
+        }
+    }
+
+    public void finishRebuild(long keyCount) {
+        AtomicLongArray target = rebuilding;
+        if (target == null) return;
+
+        bits = target;
+        rebuilding = null;
+        insertions.reset();
+        insertions.add(keyCount);
+        ready = true;
+    }
+
+    public void abortRebuild() {
+        rebuilding = null;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Tasa de falsos positivos esperada según las inserciones actuales
+     */
+    public double expectedFalsePositiveRate() {
+        double fill = 1 - Math.exp(-hashCount * (double) insertions.sum() / bitCount);
+        return Math.pow(fill, hashCount);
+    }
+
+    /**
+     * Fracción de respuestas "puede existir" en las que Redis no tenía la clave.
+     * Es una cota superior de la tasa de falsos positivos.
+     */
+    public double observedPositiveMissRate() {
+        long positives = queries.sum() - definiteMisses.sum();
+        return positives > 0 ? (double) positiveMisses.sum() / positives : 0;
+    }
+
+    public long getQueries() { return queries.sum(); }
+    public long getDefiniteMisses() { return definiteMisses.sum(); }
+    public long getPositiveMisses() { return positiveMisses.sum(); }
+    public long getVerifications() { return verifications.sum(); }
+    public long getWrongNegatives() { return wrongNegatives.sum(); }
+    public long getBypasses() { return bypasses.sum(); }
+    public long getInsertions() { return insertions.sum(); }
+    public int getBitCount() { return bitCount; }
+    public int getHashCount() { return hashCount; }
+
+    /**
+     * Posición del bit i-ésimo por doble hashing (Kirsch-Mitzenmacher)
+     */
+    private int index(long hash, int i) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return Math.floorMod(h1 + i * h2, bitCount);
+    }
+
+    private void set(AtomicLongArray array, long hash) {
+        for (int i = 1; i <= hashCount; i++) {
+            int index = index(hash, i);
+            long mask = 1L << index;
+            int word = index >>> 6;
+
+            long current;
+            do {
+                current = array.get(word);
+                if ((current & mask) != 0) break;
+            } while (!array.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    /**
+     * FNV-1a de 64 bits sobre los caracteres de la clave con mezcla final de
+     * MurmurHash3, para no codificar la clave a bytes en cada consulta
+     */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Claves añadidas por otro proxy
+     */
+    public static class Delta {
+        private final List<String> keys;
+
+        public Delta(List<String> keys) {
+            this.keys = keys;
+        }
+
+        public List<String> getKeys() {
+            return keys;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package gc.grivyzom.grvUtils.cache;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Política de expiración para las claves que coinciden con un patrón glob.
+ *
+ * La clave se guarda en Redis con un TTL de {@code ttl} (reducido aleatoriamente
+ * según {@code jitter}) más la ventana {@code staleWhileRevalidate}. Mientras el
+ * TTL restante está dentro de esa ventana el valor se considera caducado pero se
+ * sigue sirviendo; a partir de {@code refreshAhead} (fracción del TTL consumida)
+ * se recarga en segundo plano.
+ */
+public class TtlPolicy {
+
+    private final String pattern;
+    private final Pattern regex;
+    private final int ttlSeconds;
+    private final double jitter;
+    private final double refreshAhead;
+    private final int staleWhileRevalidateSeconds;
+
+    public TtlPolicy(String pattern, int ttlSeconds, double jitter,
+                     double refreshAhead, int staleWhileRevalidateSeconds) {
+        this.pattern = pattern;
+        this.regex = compileGlob(pattern);
+        this.ttlSeconds = Math.max(0, ttlSeconds);
+        this.jitter = clamp(jitter);
+        this.refreshAhead = clamp(refreshAhead);
+        this.staleWhileRevalidateSeconds = Math.max(0, staleWhileRevalidateSeconds);
+    }
+
+    public boolean matches(String key) {
+        return regex.matcher(key).matches();
+    }
+
+    /**
+     * TTL físico con el que se escribe la clave en Redis (0 = sin expiración)
+     */
+    public int physicalTtl(int requestedTtlSeconds) {
+        int ttl = baseTtl(requestedTtlSeconds);
+        if (ttl <= 0) return 0;
+
+        if (jitter > 0) {
+            ttl -= (int) (ttl * jitter * ThreadLocalRandom.current().nextDouble());
+        }
+        return Math.max(1, ttl) + staleWhileRevalidateSeconds;
+    }
+
+    /**
+     * TTL base de una escritura: el explícito si lo hay, si no el de la política
+     */
+    public int baseTtl(int requestedTtlSeconds) {
+        return requestedTtlSeconds > 0 ? requestedTtlSeconds : ttlSeconds;
+    }
+
+    /**
+     * Estado de un valor escrito con el TTL base de la política, según el TTL
+     * restante que devuelve PTTL
+     */
+    public Freshness classify(long remainingMillis) {
+        return classify(remainingMillis, ttlSeconds);
+    }
+
+    /**
+     * Estado de un valor escrito con un TTL base concreto (por ejemplo un TTL
+     * explícito más corto que el de la política)
+     */
+    public Freshness classify(long remainingMillis, int baseTtlSeconds) {
+        if (remainingMillis < 0 || baseTtlSeconds <= 0) return Freshness.FRESH;
+
+        long staleMillis = staleWhileRevalidateSeconds * 1000L;
+        if (staleWhileRevalidateSeconds > 0 && remainingMillis <= staleMillis) {
+            return Freshness.STALE;
+        }
+
+        if (refreshAhead > 0) {
+            long refreshMillis = staleMillis + (long) (baseTtlSeconds * 1000L * (1 - refreshAhead));
+            if (remainingMillis <= refreshMillis) return Freshness.REFRESH;
+        }
+        return Freshness.FRESH;
+    }
+
+    public boolean needsTtl() {
+        return ttlSeconds > 0 && (refreshAhead > 0 || staleWhileRevalidateSeconds > 0);
+    }
+
+    public String getPattern() { return pattern; }
+    public int getTtlSeconds() { return ttlSeconds; }
+    public double getJitter() { return jitter; }
+    public double getRefreshAhead() { return refreshAhead; }
+    public int getStaleWhileRevalidateSeconds() { return staleWhileRevalidateSeconds; }
+
+    private static double clamp(double value) {
+        return Math.max(0, Math.min(1, value));
+    }
+
+    private static Pattern compileGlob(String glob) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+
+        for (char c : glob.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    public enum Freshness {
+        /** El valor se sirve sin más */
+        FRESH,
+        /** Se sirve y se recarga en segundo plano */
+        REFRESH,
+        /** Ha caducado: se sirve mientras se recarga */
+        STALE
+    }
+}
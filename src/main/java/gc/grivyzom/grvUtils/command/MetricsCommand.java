@@ -0,0 +1,124 @@
+package gc.grivyzom.grvUtils.command;
+
+import com.velocitypowered.api.command.CommandSource;
+import com.velocitypowered.api.command.SimpleCommand;
+import gc.grivyzom.grvUtils.GrvUtils;
+import gc.grivyzom.grvUtils.cache.NegativeLookupFilter;
+import gc.grivyzom.grvUtils.metrics.LatencyHistogram;
+import gc.grivyzom.grvUtils.metrics.MessagingMetrics;
+import gc.grivyzom.grvUtils.redis.RedisMessenger;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * /grvmetrics [mensajes|emisores|cache] - muestra las métricas del plugin
+ */
+public class MetricsCommand implements SimpleCommand {
+
+    private static final String PERMISSION = "grvutils.metrics";
+
+    private final GrvUtils plugin;
+
+    public MetricsCommand(GrvUtils plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void execute(Invocation invocation) {
+        CommandSource source = invocation.source();
+        String[] args = invocation.arguments();
+        String section = args.length > 0 ? args[0].toLowerCase() : "mensajes";
+
+        RedisMessenger messenger = plugin.getRedisMessenger();
+        if (messenger == null && !section.equals("cache")) {
+            source.sendMessage(Component.text("La mensajería Redis no está disponible", NamedTextColor.RED));
+            return;
+        }
+
+        switch (section) {
+            case "mensajes" -> showTypes(source, messenger.getMetrics());
+            case "emisores" -> showSenders(source, messenger.getMetrics());
+            case "cache" -> showCache(source);
+            default -> source.sendMessage(Component.text("Uso: /grvmetrics [mensajes|emisores|cache]", NamedTextColor.RED));
+        }
+    }
+
+    private void showTypes(CommandSource source, MessagingMetrics metrics) {
+        source.sendMessage(Component.text("Mensajería por tipo (retraso en ms, handler en µs):", NamedTextColor.AQUA));
+
+        Map<String, MessagingMetrics.TypeStats> types = new TreeMap<>(metrics.getTypes());
+        if (types.isEmpty()) {
+            source.sendMessage(Component.text("  Sin mensajes todavía", NamedTextColor.GRAY));
+        }
+
+        types.forEach((type, stats) -> {
+            source.sendMessage(Component.text("  " + type, NamedTextColor.YELLOW)
+                    .append(Component.text(" enviados " + stats.getSent() + ", recibidos " + stats.getReceived() +
+                            ", fallos " + stats.getFailures() + ", desviación " + stats.getSkewed(),
+                            NamedTextColor.WHITE)));
+            source.sendMessage(Component.text("    retraso " + describe(stats.getLag()), NamedTextColor.GRAY));
+            source.sendMessage(Component.text("    handler " + describe(stats.getHandler()), NamedTextColor.GRAY));
+        });
+
+        if (metrics.getDecodeErrors() > 0) {
+            source.sendMessage(Component.text("  Mensajes no decodificables: " + metrics.getDecodeErrors(),
+                    NamedTextColor.RED));
+        }
+    }
+
+    private void showSenders(CommandSource source, MessagingMetrics metrics) {
+        source.sendMessage(Component.text("Mensajería por emisor:", NamedTextColor.AQUA));
+
+        Map<String, MessagingMetrics.SenderStats> senders = new TreeMap<>(metrics.getSenders());
+        if (senders.isEmpty()) {
+            source.sendMessage(Component.text("  Sin mensajes todavía", NamedTextColor.GRAY));
+        }
+
+        senders.forEach((sender, stats) -> {
+            Long minLag = stats.getMinLag();
+            source.sendMessage(Component.text("  " + sender, NamedTextColor.YELLOW)
+                    .append(Component.text(String.format(" recibidos %d (%.1f/s), perdidos %d, fallos %d, retraso mínimo %s",
+                            stats.getReceived(), stats.getThroughput(), stats.getDropped(), stats.getFailures(),
+                            minLag != null ? minLag + "ms" : "-"), NamedTextColor.WHITE)));
+        });
+    }
+
+    private void showCache(CommandSource source) {
+        NegativeLookupFilter filter = plugin.getRedisCache() != null ? plugin.getRedisCache().getNegativeFilter() : null;
+        if (filter == null) {
+            source.sendMessage(Component.text("El filtro de claves de la caché no está habilitado", NamedTextColor.GRAY));
+            return;
+        }
+
+        source.sendMessage(Component.text("Filtro de claves de la caché:", NamedTextColor.AQUA));
+        source.sendMessage(Component.text(String.format(
+                "  consultas %d, evitadas %d, positivos sin clave %d (%.4f observado, %.4f falsos positivos esperados), sin filtro %d",
+                filter.getQueries(), filter.getDefiniteMisses(), filter.getPositiveMisses(),
+                filter.observedPositiveMissRate(), filter.expectedFalsePositiveRate(), filter.getBypasses()),
+                NamedTextColor.WHITE));
+        source.sendMessage(Component.text(String.format(
+                "  verificaciones %d, negativos erróneos %d",
+                filter.getVerifications(), filter.getWrongNegatives()),
+                NamedTextColor.WHITE));
+    }
+
+    private static String describe(LatencyHistogram histogram) {
+        if (histogram.getCount() == 0) return "-";
+        return String.format("media %.1f, p50 %d, p99 %d, máx %d",
+                histogram.getMean(), histogram.percentile(0.5), histogram.percentile(0.99), histogram.getMax());
+    }
+
+    @Override
+    public boolean hasPermission(Invocation invocation) {
+        return invocation.source().hasPermission(PERMISSION);
+    }
+
+    @Override
+    public List<String> suggest(Invocation invocation) {
+        return List.of("mensajes", "emisores", "cache");
+    }
+}
@@ -1,12 +1,15 @@
 package gc.grivyzom.grvUtils.config;
 
 import gc.grivyzom.grvUtils.GrvUtils;
+import gc.grivyzom.grvUtils.cache.TtlPolicy;
 import org.spongepowered.configurate.CommentedConfigurationNode;
 import org.spongepowered.configurate.yaml.YamlConfigurationLoader;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ConfigManager {
 
@@ -48,7 +51,7 @@ public class ConfigManager {
 
         // Configuración Redis
         root.node("redis", "enabled").set(true)
-                .comment("Habilitar/deshabilitar Redis");
+                .comment("Habilitar/deshabilitar Redis (deshabilitado usa almacenamiento en memoria)");
         root.node("redis", "host").set("localhost")
                 .comment("Host del servidor Redis");
         root.node("redis", "port").set(6379)
@@ -65,6 +68,28 @@ public class ConfigManager {
                 .comment("Máximo número de conexiones inactivas");
         root.node("redis", "pool", "min-idle").set(2)
                 .comment("Mínimo número de conexiones inactivas");
+        root.node("redis", "pipelining", "enabled").set(false)
+                .comment("Multiplexar los comandos síncronos sobre conexiones compartidas");
+        root.node("redis", "pipelining", "connections").set(2)
+                .comment("Número de conexiones compartidas");
+        root.node("redis", "pipelining", "max-batch").set(128)
+                .comment("Máximo de comandos enviados en un mismo pipeline");
+        root.node("redis", "pipelining", "health-check-interval").set(5000)
+                .comment("Intervalo de comprobación de salud en milisegundos");
+        root.node("redis", "async", "threads").set(4)
+                .comment("Hilos para operaciones asíncronas");
+        root.node("redis", "async", "timeout").set(0)
+                .comment("Plazo por defecto de las operaciones asíncronas en milisegundos (0 = sin plazo)");
+        root.node("redis", "startup", "initial-backoff").set(1000)
+                .comment("Espera inicial en milisegundos entre intentos de conexión");
+        root.node("redis", "startup", "max-backoff").set(30000)
+                .comment("Espera máxima en milisegundos entre intentos de conexión");
+        root.node("redis", "startup", "max-retries").set(0)
+                .comment("Máximo de reintentos de conexión al arrancar (0 = sin límite)");
+        root.node("redis", "startup", "queue-timeout").set(5000)
+                .comment("Tiempo máximo en milisegundos que una operación asíncrona espera a la conexión (0 = sin límite)");
+        root.node("redis", "memory", "timer-tick").set(100)
+                .comment("Resolución en milisegundos de las expiraciones del almacenamiento en memoria (redis.enabled en false)");
 
         // Configuración general
         root.node("general", "debug").set(false)
@@ -120,6 +145,184 @@ public class ConfigManager {
         return config.node("redis", "pool", "min-idle").getInt(2);
     }
 
+    public boolean isRedisPipeliningEnabled() {
+        return config.node("redis", "pipelining", "enabled").getBoolean(false);
+    }
+
+    public int getRedisPipeliningConnections() {
+        return config.node("redis", "pipelining", "connections").getInt(2);
+    }
+
+    public int getRedisPipeliningMaxBatch() {
+        return config.node("redis", "pipelining", "max-batch").getInt(128);
+    }
+
+    public long getRedisPipeliningHealthCheckInterval() {
+        return config.node("redis", "pipelining", "health-check-interval").getLong(5000);
+    }
+
+    public int getRedisAsyncThreads() {
+        return config.node("redis", "async", "threads").getInt(4);
+    }
+
+    public long getRedisAsyncTimeout() {
+        return config.node("redis", "async", "timeout").getLong(0);
+    }
+
+    public long getRedisStartupInitialBackoff() {
+        return config.node("redis", "startup", "initial-backoff").getLong(1000);
+    }
+
+    public long getRedisStartupMaxBackoff() {
+        return config.node("redis", "startup", "max-backoff").getLong(30000);
+    }
+
+    public int getRedisStartupMaxRetries() {
+        return config.node("redis", "startup", "max-retries").getInt(0);
+    }
+
+    public long getRedisStartupQueueTimeout() {
+        return config.node("redis", "startup", "queue-timeout").getLong(5000);
+    }
+
+    public long getRedisMemoryTimerTick() {
+        return config.node("redis", "memory", "timer-tick").getLong(100);
+    }
+
+    public boolean isPresenceEnabled() {
+        return config.node("presence", "enabled").getBoolean(true);
+    }
+
+    public long getPresenceFlushInterval() {
+        return config.node("presence", "flush-interval").getLong(100);
+    }
+
+    public long getPresenceAntiEntropyInterval() {
+        return config.node("presence", "anti-entropy-interval").getLong(30);
+    }
+
+    public long getSchedulerLeaseTtl() {
+        return config.node("scheduler", "lease-ttl").getLong(5000);
+    }
+
+    public long getSchedulerHeartbeatInterval() {
+        return config.node("scheduler", "heartbeat-interval").getLong(1000);
+    }
+
+    public int getCacheLoaderThreads() {
+        return config.node("cache", "loader-threads").getInt(4);
+    }
+
+    public int getCacheDefaultTtl() {
+        return config.node("cache", "default-ttl").getInt(3600);
+    }
+
+    public double getCacheTtlJitter() {
+        return config.node("cache", "ttl-jitter").getDouble(0.0);
+    }
+
+    public List<TtlPolicy> getCacheTtlPolicies() {
+        List<TtlPolicy> policies = new ArrayList<>();
+        for (CommentedConfigurationNode node : config.node("cache", "policies").childrenList()) {
+            policies.add(new TtlPolicy(
+                    node.node("pattern").getString("*"),
+                    node.node("ttl").getInt(getCacheDefaultTtl()),
+                    node.node("jitter").getDouble(getCacheTtlJitter()),
+                    node.node("refresh-ahead").getDouble(0.0),
+                    node.node("stale-while-revalidate").getInt(0)
+            ));
+        }
+        return policies;
+    }
+
+    public boolean isNegativeFilterEnabled() {
+        return config.node("cache", "negative-filter", "enabled").getBoolean(false);
+    }
+
+    public long getNegativeFilterExpectedKeys() {
+        return config.node("cache", "negative-filter", "expected-keys").getLong(100000);
+    }
+
+    public double getNegativeFilterFalsePositiveRate() {
+        return config.node("cache", "negative-filter", "false-positive-rate").getDouble(0.01);
+    }
+
+    public long getNegativeFilterRebuildInterval() {
+        return config.node("cache", "negative-filter", "rebuild-interval").getLong(600);
+    }
+
+    public double getNegativeFilterVerifyRate() {
+        return config.node("cache", "negative-filter", "verify-rate").getDouble(0.01);
+    }
+
+    public long getNegativeFilterSyncInterval() {
+        return config.node("cache", "negative-filter", "sync-interval").getLong(100);
+    }
+
+    public boolean isLocalCacheEnabled() {
+        return config.node("cache", "local", "enabled").getBoolean(false);
+    }
+
+    public int getLocalCacheMaxEntries() {
+        return config.node("cache", "local", "max-entries").getInt(10000);
+    }
+
+    public long getLocalCacheTtl() {
+        return config.node("cache", "local", "ttl").getLong(300);
+    }
+
+    public long getPrefetchMaxAge() {
+        return config.node("cache", "prefetch", "max-age").getLong(10);
+    }
+
+    public boolean isCacheSnapshotEnabled() {
+        return config.node("cache", "local", "snapshot", "enabled").getBoolean(false);
+    }
+
+    public long getCacheSnapshotInterval() {
+        return config.node("cache", "local", "snapshot", "interval").getLong(300);
+    }
+
+    public String getMessagingChannelPrefix() {
+        return config.node("messaging", "channel-prefix").getString("grvutils");
+    }
+
+    public boolean isMessagingPerTypeChannels() {
+        return config.node("messaging", "per-type-channels").getBoolean(false);
+    }
+
+    public boolean isMessagingShardedPubSub() {
+        return config.node("messaging", "sharded-pubsub").getBoolean(false);
+    }
+
+    public long getMessagingClockSkewTolerance() {
+        return config.node("messaging", "metrics", "clock-skew-tolerance").getLong(100);
+    }
+
+    public double getMessagingTraceSampleRate() {
+        return config.node("messaging", "metrics", "trace-sample-rate").getDouble(0.0);
+    }
+
+    public boolean isMetricsEndpointEnabled() {
+        return config.node("metrics", "enabled").getBoolean(false);
+    }
+
+    public String getMetricsEndpointHost() {
+        return config.node("metrics", "host").getString("127.0.0.1");
+    }
+
+    public int getMetricsEndpointPort() {
+        return config.node("metrics", "port").getInt(9225);
+    }
+
+    public long getLeaderboardFlushInterval() {
+        return config.node("leaderboard", "flush-interval").getLong(1000);
+    }
+
+    public long getLeaderboardRefreshDelay() {
+        return config.node("leaderboard", "refresh-delay").getLong(250);
+    }
+
     public boolean isDebugEnabled() {
         return config.node("general", "debug").getBoolean(false);
     }
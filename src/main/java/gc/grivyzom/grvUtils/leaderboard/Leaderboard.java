@@ -0,0 +1,220 @@
+package gc.grivyzom.grvUtils.leaderboard;
+
+import gc.grivyzom.grvUtils.redis.RedisManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clasificación compartida entre proxies sobre un sorted set de Redis.
+ * Los cambios de puntuación se acumulan localmente y se envían en lote; el
+ * top-N se guarda en memoria y sólo se vuelve a leer al recibir un aviso de cambio.
+ */
+public class Leaderboard {
+
+    // Tiempo que Redis recuerda el último lote aplicado por esta instancia
+    private static final long BATCH_MARKER_TTL_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private final LeaderboardManager manager;
+    private final RedisManager redisManager;
+    private final String name;
+    private final String key;
+    private final int topSize;
+    private final Map<String, Double> pendingIncrements;
+    private final Map<String, Double> pendingScores;
+    private final String batchKey;
+    private long sequence;
+    private Batch retry;
+    private volatile List<Entry> top;
+
+    Leaderboard(LeaderboardManager manager, RedisManager redisManager, String name, String key, int topSize) {
+        this.manager = manager;
+        this.redisManager = redisManager;
+        this.name = name;
+        this.key = key;
+        this.topSize = topSize;
+        this.pendingIncrements = new ConcurrentHashMap<>();
+        this.pendingScores = new ConcurrentHashMap<>();
+        this.batchKey = key + ":flush:" + UUID.randomUUID();
+        this.top = Collections.emptyList();
+    }
+
+    /**
+     * Suma puntos a un miembro (ZINCRBY en el siguiente lote)
+     */
+    public void increment(String member, double delta) {
+        pendingIncrements.merge(member, delta, Double::sum);
+    }
+
+    /**
+     * Fija la puntuación de un miembro (ZADD en el siguiente lote)
+     */
+    public void setScore(String member, double score) {
+        pendingIncrements.remove(member);
+        pendingScores.put(member, score);
+    }
+
+    /**
+     * Envía los cambios pendientes en un lote atómico. Si no hay confirmación, el
+     * lote se reintenta tal cual (mismo número de secuencia) antes que los cambios
+     * nuevos: si en realidad llegó a aplicarse, Redis lo descarta y los incrementos
+     * no se suman dos veces.
+     * @return true si algún lote llegó a Redis
+     */
+    synchronized boolean flush() {
+        boolean applied = false;
+
+        if (retry != null) {
+            // Una puntuación fijada después del lote fallido prevalece sobre él
+            retry.dropOverridden(pendingScores);
+            if (!retry.isEmpty() && !send(retry)) return false;
+            retry = null;
+            applied = true;
+        }
+
+        if (pendingIncrements.isEmpty() && pendingScores.isEmpty()) return applied;
+
+        Batch batch = new Batch(++sequence, drain(pendingScores), drain(pendingIncrements));
+        if (!send(batch)) {
+            retry = batch;
+            return applied;
+        }
+        return true;
+    }
+
+    private boolean send(Batch batch) {
+        return redisManager.applyScoreBatch(key, batchKey, batch.sequence, batch.scores, batch.increments,
+                BATCH_MARKER_TTL_MILLIS);
+    }
+
+    /**
+     * Relee el top-N desde Redis
+     */
+    void refreshTop() {
+        List<RedisManager.ScoredMember> members = redisManager.zrevrangeWithScores(key, 0, topSize - 1);
+        top = toEntries(members, 0);
+    }
+
+    /**
+     * Top-N en memoria; no genera tráfico hacia Redis
+     */
+    public List<Entry> getTop() {
+        return top;
+    }
+
+    /**
+     * Posición (empezando en 0) de un miembro, o null si no está clasificado
+     */
+    public Long getRank(String member) {
+        return redisManager.zrevrank(key, member);
+    }
+
+    public Double getScore(String member) {
+        return redisManager.zscore(key, member);
+    }
+
+    /**
+     * Página de la clasificación, empezando en la página 0
+     */
+    public List<Entry> getPage(int page, int pageSize) {
+        long start = (long) page * pageSize;
+        return toEntries(redisManager.zrevrangeWithScores(key, start, start + pageSize - 1), start);
+    }
+
+    public CompletableFuture<Long> getRankAsync(String member) {
+        return CompletableFuture.supplyAsync(() -> getRank(member), redisManager.getIoExecutor());
+    }
+
+    public CompletableFuture<Double> getScoreAsync(String member) {
+        return CompletableFuture.supplyAsync(() -> getScore(member), redisManager.getIoExecutor());
+    }
+
+    public CompletableFuture<List<Entry>> getPageAsync(int page, int pageSize) {
+        return CompletableFuture.supplyAsync(() -> getPage(page, pageSize), redisManager.getIoExecutor());
+    }
+
+    /**
+     * Envía ya los cambios pendientes en lugar de esperar al siguiente lote
+     */
+    public void flushNow() {
+        manager.flush(this);
+    }
+
+    private static Map<String, Double> drain(Map<String, Double> pending) {
+        Map<String, Double> drained = new HashMap<>();
+        for (String member : pending.keySet()) {
+            Double value = pending.remove(member);
+            if (value != null) drained.put(member, value);
+        }
+        return drained;
+    }
+
+    private static List<Entry> toEntries(List<RedisManager.ScoredMember> members, long firstRank) {
+        if (members == null || members.isEmpty()) return Collections.emptyList();
+
+        List<Entry> entries = new ArrayList<>(members.size());
+        long rank = firstRank;
+        for (RedisManager.ScoredMember member : members) {
+            entries.add(new Entry(member.getMember(), member.getScore(), rank++));
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getTopSize() {
+        return topSize;
+    }
+
+    /**
+     * Lote enviado a Redis, identificado por su número de secuencia
+     */
+    private static final class Batch {
+        private final long sequence;
+        private final Map<String, Double> scores;
+        private final Map<String, Double> increments;
+
+        private Batch(long sequence, Map<String, Double> scores, Map<String, Double> increments) {
+            this.sequence = sequence;
+            this.scores = scores;
+            this.increments = increments;
+        }
+
+        private void dropOverridden(Map<String, Double> newerScores) {
+            scores.keySet().removeAll(newerScores.keySet());
+            increments.keySet().removeAll(newerScores.keySet());
+        }
+
+        private boolean isEmpty() {
+            return scores.isEmpty() && increments.isEmpty();
+        }
+    }
+
+    /**
+     * Posición de un miembro en la clasificación
+     */
+    public static class Entry {
+        private final String member;
+        private final double score;
+        private final long rank;
+
+        public Entry(String member, double score, long rank) {
+            this.member = member;
+            this.score = score;
+            this.rank = rank;
+        }
+
+        public String getMember() { return member; }
+        public double getScore() { return score; }
+        public long getRank() { return rank; }
+    }
+}
@@ -0,0 +1,118 @@
+package gc.grivyzom.grvUtils.leaderboard;
+
+import gc.grivyzom.grvUtils.GrvUtils;
+import gc.grivyzom.grvUtils.redis.RedisManager;
+import gc.grivyzom.grvUtils.redis.RedisMessenger;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gestiona las clasificaciones: envía los lotes de puntuaciones periódicamente
+ * y avisa al resto de proxies para que refresquen su top-N en memoria.
+ */
+public class LeaderboardManager {
+
+    private static final String UPDATE_MESSAGE = "leaderboard_update";
+
+    private final GrvUtils plugin;
+    private final RedisManager redisManager;
+    private final RedisMessenger redisMessenger;
+    private final Map<String, Leaderboard> leaderboards;
+    private final Set<String> pendingRefresh;
+    private final long refreshDelayMillis;
+    private final ScheduledFuture<?> flushTask;
+
+    public LeaderboardManager(GrvUtils plugin) {
+        this.plugin = plugin;
+        this.redisManager = plugin.getRedisManager();
+        this.redisMessenger = plugin.getRedisMessenger();
+        this.leaderboards = new ConcurrentHashMap<>();
+        this.pendingRefresh = ConcurrentHashMap.newKeySet();
+        this.refreshDelayMillis = plugin.getConfigManager().getLeaderboardRefreshDelay();
+
+        redisMessenger.registerHandler(UPDATE_MESSAGE, LeaderboardUpdate.class,
+                update -> scheduleRefresh(update.name));
+
+        long flushInterval = plugin.getConfigManager().getLeaderboardFlushInterval();
+        this.flushTask = redisManager.getExecutorService().scheduleAtFixedRate(
+                this::flushAll, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+
+        // Las clasificaciones creadas antes de conectar leen su top-N al quedar Redis listo
+        redisManager.whenReady().thenRun(() -> leaderboards.keySet().forEach(this::scheduleRefresh));
+    }
+
+    /**
+     * Obtiene (o crea) una clasificación que mantiene en memoria sus topSize primeros
+     */
+    public Leaderboard getLeaderboard(String name, int topSize) {
+        return leaderboards.computeIfAbsent(name, n -> {
+            Leaderboard leaderboard = new Leaderboard(this, redisManager, n,
+                    "grvutils:leaderboard:" + n, Math.max(1, topSize));
+            scheduleRefresh(n);
+            return leaderboard;
+        });
+    }
+
+    public Leaderboard getLeaderboard(String name) {
+        return leaderboards.get(name);
+    }
+
+    void flush(Leaderboard leaderboard) {
+        // Sin conexión las puntuaciones se siguen acumulando hasta que Redis esté listo
+        if (!redisManager.isConnected()) return;
+
+        if (leaderboard.flush()) {
+            scheduleRefresh(leaderboard.getName());
+            redisMessenger.send(UPDATE_MESSAGE, new LeaderboardUpdate(leaderboard.getName()));
+        }
+    }
+
+    private void flushAll() {
+        for (Leaderboard leaderboard : leaderboards.values()) {
+            try {
+                flush(leaderboard);
+            } catch (Exception e) {
+                plugin.getLogger().error("Error al enviar puntuaciones de " + leaderboard.getName() + ":", e);
+            }
+        }
+    }
+
+    /**
+     * Agrupa los avisos que llegan seguidos en una sola lectura del top-N
+     */
+    private void scheduleRefresh(String name) {
+        if (!pendingRefresh.add(name)) return;
+
+        redisManager.getExecutorService().schedule(() -> {
+            pendingRefresh.remove(name);
+            Leaderboard leaderboard = leaderboards.get(name);
+            if (leaderboard != null) {
+                leaderboard.refreshTop();
+            }
+        }, refreshDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        flushTask.cancel(false);
+        flushAll();
+    }
+
+    /**
+     * Aviso de cambio en una clasificación
+     */
+    public static class LeaderboardUpdate {
+        private final String name;
+
+        public LeaderboardUpdate(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
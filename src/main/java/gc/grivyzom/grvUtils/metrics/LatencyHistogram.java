@@ -0,0 +1,94 @@
+package gc.grivyzom.grvUtils.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma con cubos en potencias de dos. El cubo i guarda los valores en
+ * [2^(i-1), 2^i), así que los percentiles tienen como mucho un factor 2 de error,
+ * suficiente para distinguir 1 ms de 2 s sin coste apreciable al registrar.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long value) {
+        long v = Math.max(0, value);
+        buckets.incrementAndGet(bucketOf(v));
+        count.increment();
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return n > 0 ? (double) sum.sum() / n : 0;
+    }
+
+    /**
+     * Límite superior del cubo que contiene el percentil indicado (0-1)
+     */
+    public long percentile(double p) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) return 0;
+
+        long target = (long) Math.ceil(total * Math.max(0, Math.min(1, p)));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= Math.max(1, target)) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Recuentos acumulados por límite superior, para exportar en formato Prometheus
+     */
+    public void forEachBucket(BucketVisitor visitor) {
+        long cumulative = 0;
+        int last = BUCKETS - 1;
+        while (last > 0 && buckets.get(last) == 0) last--;
+
+        for (int i = 0; i <= last; i++) {
+            cumulative += buckets.get(i);
+            visitor.visit(upperBound(i), cumulative);
+        }
+    }
+
+    private static int bucketOf(long value) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    public interface BucketVisitor {
+        void visit(long upperBound, long cumulativeCount);
+    }
+}
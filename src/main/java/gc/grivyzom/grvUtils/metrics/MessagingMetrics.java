@@ -0,0 +1,193 @@
+package gc.grivyzom.grvUtils.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de entrega de la mensajería entre proxies: retraso de entrega y
+ * tiempo de handler por tipo, y recepción, pérdidas y errores por emisor.
+ *
+ * El retraso es la hora de recepción menos la marca de tiempo del emisor, así
+ * que incluye la desviación entre relojes. Los valores negativos dentro de la
+ * tolerancia se cuentan como 0; los que la superan se cuentan aparte y no
+ * entran en el histograma. Las pérdidas se detectan por huecos en el número de
+ * secuencia que cada emisor asigna por tipo.
+ */
+public class MessagingMetrics {
+
+    private static final long SENDER_IDLE_MILLIS = 60 * 60 * 1000L;
+
+    private final long clockSkewToleranceMillis;
+    private final double traceSampleRate;
+    private final Map<String, TypeStats> types = new ConcurrentHashMap<>();
+    private final Map<String, SenderStats> senders = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> sequences = new ConcurrentHashMap<>();
+    private final LongAdder decodeErrors = new LongAdder();
+
+    public MessagingMetrics(long clockSkewToleranceMillis, double traceSampleRate) {
+        this.clockSkewToleranceMillis = Math.max(0, clockSkewToleranceMillis);
+        this.traceSampleRate = Math.max(0, Math.min(1, traceSampleRate));
+    }
+
+    /**
+     * Siguiente número de secuencia de este emisor para un tipo
+     */
+    public long nextSequence(String type) {
+        return sequences.computeIfAbsent(type, t -> new AtomicLong()).incrementAndGet();
+    }
+
+    public void recordSent(String type) {
+        typeStats(type).sent.increment();
+    }
+
+    /**
+     * Registra la llegada de un mensaje
+     * @return retraso de entrega en ms, o -1 si no se ha podido medir
+     */
+    public long recordDelivery(String type, String sender, long sentAt, long sequence, long receivedAt) {
+        TypeStats typeStats = typeStats(type);
+        SenderStats senderStats = senderStats(sender);
+        typeStats.received.increment();
+        senderStats.received.increment();
+        senderStats.lastSeen = receivedAt;
+
+        if (sequence > 0) {
+            senderStats.trackSequence(type, sequence);
+        }
+
+        if (sentAt <= 0) return -1;
+
+        long lag = receivedAt - sentAt;
+        senderStats.minLag.accumulate(lag);
+        if (lag < -clockSkewToleranceMillis) {
+            typeStats.skewed.increment();
+            return -1;
+        }
+
+        lag = Math.max(0, lag);
+        typeStats.lag.record(lag);
+        return lag;
+    }
+
+    public void recordHandler(String type, long nanos) {
+        typeStats(type).handler.record(nanos / 1000);
+    }
+
+    public void recordFailure(String type, String sender) {
+        typeStats(type).failures.increment();
+        if (sender != null) {
+            senderStats(sender).failures.increment();
+        }
+    }
+
+    public void recordDecodeError() {
+        decodeErrors.increment();
+    }
+
+    /**
+     * true si este mensaje debe dejar traza en el log según la tasa de muestreo
+     */
+    public boolean shouldTrace() {
+        return traceSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < traceSampleRate;
+    }
+
+    public Map<String, TypeStats> getTypes() {
+        return Collections.unmodifiableMap(types);
+    }
+
+    public Map<String, SenderStats> getSenders() {
+        return Collections.unmodifiableMap(senders);
+    }
+
+    /**
+     * Descarta los emisores que llevan más de una hora sin enviar
+     */
+    public void pruneIdleSenders(long now) {
+        long cutoff = now - SENDER_IDLE_MILLIS;
+        senders.values().removeIf(stats -> stats.lastSeen < cutoff);
+    }
+
+    public long getDecodeErrors() {
+        return decodeErrors.sum();
+    }
+
+    public long getClockSkewToleranceMillis() {
+        return clockSkewToleranceMillis;
+    }
+
+    private TypeStats typeStats(String type) {
+        return types.computeIfAbsent(type != null ? type : "unknown", t -> new TypeStats());
+    }
+
+    private SenderStats senderStats(String sender) {
+        return senders.computeIfAbsent(sender != null ? sender : "unknown", s -> new SenderStats());
+    }
+
+    /**
+     * Contadores de un tipo de mensaje. El retraso va en ms y el handler en µs.
+     */
+    public static class TypeStats {
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder received = new LongAdder();
+        private final LongAdder skewed = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LatencyHistogram lag = new LatencyHistogram();
+        private final LatencyHistogram handler = new LatencyHistogram();
+
+        public long getSent() { return sent.sum(); }
+        public long getReceived() { return received.sum(); }
+        public long getSkewed() { return skewed.sum(); }
+        public long getFailures() { return failures.sum(); }
+        public LatencyHistogram getLag() { return lag; }
+        public LatencyHistogram getHandler() { return handler; }
+    }
+
+    /**
+     * Contadores de un proxy emisor
+     */
+    public static class SenderStats {
+        private final LongAdder received = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAccumulator minLag = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final Map<String, AtomicLong> lastSequence = new ConcurrentHashMap<>();
+        private final long firstSeen = System.currentTimeMillis();
+        private volatile long lastSeen = firstSeen;
+
+        private void trackSequence(String type, long sequence) {
+            AtomicLong last = lastSequence.computeIfAbsent(type, t -> new AtomicLong());
+            long previous = last.getAndAccumulate(sequence, Math::max);
+            // El primer mensaje visto de un tipo no cuenta los anteriores como perdidos
+            if (previous > 0 && sequence > previous + 1) {
+                dropped.add(sequence - previous - 1);
+            }
+        }
+
+        public long getReceived() { return received.sum(); }
+        public long getDropped() { return dropped.sum(); }
+        public long getFailures() { return failures.sum(); }
+        public long getLastSeen() { return lastSeen; }
+
+        /**
+         * Mensajes por segundo desde que se vio al emisor por primera vez
+         */
+        public double getThroughput() {
+            long elapsed = Math.max(1000, System.currentTimeMillis() - firstSeen);
+            return received.sum() * 1000.0 / elapsed;
+        }
+
+        /**
+         * Menor retraso observado: aproxima la desviación de reloj del emisor
+         * más la latencia mínima de red (puede ser negativo)
+         */
+        public Long getMinLag() {
+            long value = minLag.get();
+            return value == Long.MAX_VALUE ? null : value;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package gc.grivyzom.grvUtils.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import gc.grivyzom.grvUtils.GrvUtils;
+import gc.grivyzom.grvUtils.cache.NegativeLookupFilter;
+import gc.grivyzom.grvUtils.redis.RedisCache;
+import gc.grivyzom.grvUtils.redis.RedisMessenger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Endpoint HTTP que expone las métricas en formato de texto de Prometheus
+ */
+public class MetricsHttpServer {
+
+    private final GrvUtils plugin;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public MetricsHttpServer(GrvUtils plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() {
+        String host = plugin.getConfigManager().getMetricsEndpointHost();
+        int port = plugin.getConfigManager().getMetricsEndpointPort();
+
+        try {
+            server = HttpServer.create(new InetSocketAddress(host, port), 0);
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "grvutils-metrics-http");
+                thread.setDaemon(true);
+                return thread;
+            });
+            server.setExecutor(executor);
+            server.createContext("/metrics", this::handle);
+            server.start();
+
+            plugin.getLogger().info("§a✓ §fEndpoint de métricas en §ehttp://" + host + ":" + port + "/metrics");
+        } catch (IOException e) {
+            plugin.getLogger().error("Error al iniciar el endpoint de métricas:", e);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * Genera el texto de todas las métricas disponibles
+     */
+    public String render() {
+        StringBuilder out = new StringBuilder(4096);
+
+        RedisMessenger messenger = plugin.getRedisMessenger();
+        if (messenger != null) {
+            renderMessaging(out, messenger.getMetrics());
+        }
+
+        RedisCache cache = plugin.getRedisCache();
+        if (cache != null && cache.getNegativeFilter() != null) {
+            renderNegativeFilter(out, cache.getNegativeFilter());
+        }
+
+        if (plugin.getRedisManager() != null && plugin.getRedisManager().getJedisPool() != null) {
+            gauge(out, "grvutils_redis_pool_active", "Conexiones Redis en uso",
+                    plugin.getRedisManager().getJedisPool().getNumActive());
+            gauge(out, "grvutils_redis_pool_idle", "Conexiones Redis inactivas",
+                    plugin.getRedisManager().getJedisPool().getNumIdle());
+        }
+        return out.toString();
+    }
+
+    private void renderMessaging(StringBuilder out, MessagingMetrics metrics) {
+        Map<String, MessagingMetrics.TypeStats> types = metrics.getTypes();
+
+        header(out, "grvutils_messaging_sent_total", "counter", "Mensajes enviados por tipo");
+        types.forEach((type, stats) -> sample(out, "grvutils_messaging_sent_total", "type", type, stats.getSent()));
+
+        header(out, "grvutils_messaging_received_total", "counter", "Mensajes recibidos por tipo");
+        types.forEach((type, stats) -> sample(out, "grvutils_messaging_received_total", "type", type, stats.getReceived()));
+
+        header(out, "grvutils_messaging_clock_skew_total", "counter",
+                "Mensajes con retraso negativo fuera de la tolerancia de reloj");
+        types.forEach((type, stats) -> sample(out, "grvutils_messaging_clock_skew_total", "type", type, stats.getSkewed()));
+
+        header(out, "grvutils_messaging_failures_total", "counter", "Mensajes cuyo handler falló");
+        types.forEach((type, stats) -> sample(out, "grvutils_messaging_failures_total", "type", type, stats.getFailures()));
+
+        header(out, "grvutils_messaging_lag_milliseconds", "histogram", "Retraso de entrega en milisegundos");
+        types.forEach((type, stats) -> histogram(out, "grvutils_messaging_lag_milliseconds", type, stats.getLag()));
+
+        header(out, "grvutils_messaging_handler_microseconds", "histogram", "Tiempo de ejecución del handler en microsegundos");
+        types.forEach((type, stats) -> histogram(out, "grvutils_messaging_handler_microseconds", type, stats.getHandler()));
+
+        Map<String, MessagingMetrics.SenderStats> senders = metrics.getSenders();
+
+        header(out, "grvutils_messaging_sender_received_total", "counter", "Mensajes recibidos por emisor");
+        senders.forEach((sender, stats) -> sample(out, "grvutils_messaging_sender_received_total", "sender", sender, stats.getReceived()));
+
+        header(out, "grvutils_messaging_sender_dropped_total", "counter", "Mensajes perdidos por emisor (huecos de secuencia)");
+        senders.forEach((sender, stats) -> sample(out, "grvutils_messaging_sender_dropped_total", "sender", sender, stats.getDropped()));
+
+        header(out, "grvutils_messaging_sender_failures_total", "counter", "Mensajes fallidos por emisor");
+        senders.forEach((sender, stats) -> sample(out, "grvutils_messaging_sender_failures_total", "sender", sender, stats.getFailures()));
+
+        counter(out, "grvutils_messaging_decode_errors_total", "Mensajes que no se pudieron decodificar",
+                metrics.getDecodeErrors());
+    }
+
+    private void renderNegativeFilter(StringBuilder out, NegativeLookupFilter filter) {
+        counter(out, "grvutils_cache_filter_queries_total", "Consultas al filtro de claves", filter.getQueries());
+        counter(out, "grvutils_cache_filter_definite_misses_total", "Consultas resueltas sin ir a Redis",
+                filter.getDefiniteMisses());
+        counter(out, "grvutils_cache_filter_positive_misses_total",
+                "Respuestas puede-existir sin clave en Redis (falsos positivos y claves eliminadas o caducadas)",
+                filter.getPositiveMisses());
+        counter(out, "grvutils_cache_filter_verifications_total", "Respuestas no-existe comprobadas en Redis",
+                filter.getVerifications());
+        counter(out, "grvutils_cache_filter_wrong_negatives_total", "Respuestas no-existe que resultaron falsas",
+                filter.getWrongNegatives());
+        counter(out, "grvutils_cache_filter_bypasses_total", "Consultas con el filtro sin construir",
+                filter.getBypasses());
+        gauge(out, "grvutils_cache_filter_insertions", "Claves insertadas desde la última reconstrucción",
+                filter.getInsertions());
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        header(out, name, "counter", help);
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, long value) {
+        header(out, name, "gauge", help);
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String label, String value, long sample) {
+        out.append(name).append('{').append(label).append("=\"").append(escape(value)).append("\"} ")
+                .append(sample).append('\n');
+    }
+
+    private static void histogram(StringBuilder out, String name, String type, LatencyHistogram histogram) {
+        String label = "type=\"" + escape(type) + "\"";
+        histogram.forEachBucket((upperBound, cumulative) ->
+                out.append(name).append("_bucket{").append(label).append(",le=\"").append(upperBound)
+                        .append("\"} ").append(cumulative).append('\n'));
+
+        out.append(name).append("_bucket{").append(label).append(",le=\"+Inf\"} ")
+                .append(histogram.getCount()).append('\n');
+        out.append(name).append("_sum{").append(label).append("} ").append(histogram.getSum()).append('\n');
+        out.append(name).append("_count{").append(label).append("} ").append(histogram.getCount()).append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package gc.grivyzom.grvUtils.player;
+
+import com.google.gson.Gson;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.connection.DisconnectEvent;
+import com.velocitypowered.api.event.connection.LoginEvent;
+import com.velocitypowered.api.event.connection.PreLoginEvent;
+import com.velocitypowered.api.proxy.Player;
+import gc.grivyzom.grvUtils.GrvUtils;
+import gc.grivyzom.grvUtils.redis.RedisCache;
+import gc.grivyzom.grvUtils.redis.RedisManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Registro declarativo de claves de caché que se precargan al conectar un jugador.
+ * Las plantillas admiten {uuid} y {name}; las que sólo usan {name} se precargan en
+ * el PreLoginEvent y el resto en el LoginEvent, en un único MGET por evento.
+ *
+ * Las escrituras a través de RedisCache en este proxy descartan el valor
+ * precargado; los cambios hechos desde otros proxies se ven al caducar
+ * (cache.prefetch.max-age).
+ */
+public class PlayerPrefetchRegistry {
+
+    private static final long PENDING_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    private final GrvUtils plugin;
+    private final RedisManager redisManager;
+    private final RedisCache redisCache;
+    private final Gson gson;
+    private final Map<String, String> templates;
+    private final Map<String, KeyMatcher> templatePatterns;
+    private final Map<String, PlayerData> players;
+    private final Map<UUID, String> namesByUuid;
+    private final long maxAgeMillis;
+
+    public PlayerPrefetchRegistry(GrvUtils plugin) {
+        this.plugin = plugin;
+        this.redisManager = plugin.getRedisManager();
+        this.redisCache = plugin.getRedisCache();
+        this.gson = new Gson();
+        this.templates = new ConcurrentHashMap<>();
+        this.templatePatterns = new ConcurrentHashMap<>();
+        this.players = new ConcurrentHashMap<>();
+        this.namesByUuid = new ConcurrentHashMap<>();
+        this.maxAgeMillis = TimeUnit.SECONDS.toMillis(plugin.getConfigManager().getPrefetchMaxAge());
+
+        redisCache.addWriteListener(this::onCacheWrite);
+
+        // Limpiar precargas de conexiones que nunca llegaron a completar el login
+        redisManager.getExecutorService().scheduleAtFixedRate(
+                this::purgeAbandoned, 30, 30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Registra una plantilla de clave, relativa al prefijo de RedisCache
+     * (por ejemplo "stats:{uuid}")
+     */
+    public void registerTemplate(String id, String template) {
+        templates.put(id, template);
+        templatePatterns.put(id, new KeyMatcher(template));
+        plugin.getLogger().info("§a✓ §fPrecarga registrada: §e" + id + " §7(" + template + ")");
+    }
+
+    public void unregisterTemplate(String id) {
+        templates.remove(id);
+        templatePatterns.remove(id);
+    }
+
+    @Subscribe
+    public void onPreLogin(PreLoginEvent event) {
+        if (!event.getResult().isAllowed()) return;
+
+        String name = event.getUsername();
+        // Si el nombre tiene ya una sesión activa (login duplicado), la nueva empieza con datos propios
+        PlayerData data = players.compute(normalize(name),
+                (k, current) -> current == null || current.owner != null ? new PlayerData() : current);
+        prefetch(data, null, name);
+    }
+
+    @Subscribe
+    public void onLogin(LoginEvent event) {
+        if (!event.getResult().isAllowed()) return;
+
+        Player player = event.getPlayer();
+        PlayerData data = players.computeIfAbsent(normalize(player.getUsername()), k -> new PlayerData());
+        data.owner = player;
+        namesByUuid.put(player.getUniqueId(), normalize(player.getUsername()));
+        prefetch(data, player.getUniqueId(), player.getUsername());
+    }
+
+    @Subscribe
+    public void onDisconnect(DisconnectEvent event) {
+        Player player = event.getPlayer();
+        String name = normalize(player.getUsername());
+
+        // Sólo los datos de esta sesión: tras un login duplicado pertenecen a la nueva
+        PlayerData data = players.get(name);
+        if (data != null && data.owner == player && players.remove(name, data)) {
+            namesByUuid.remove(player.getUniqueId(), name);
+        }
+    }
+
+    private void prefetch(PlayerData data, UUID uuid, String name) {
+        List<String> ids = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+
+        for (Map.Entry<String, String> entry : templates.entrySet()) {
+            String template = entry.getValue();
+            if (data.values.containsKey(entry.getKey())) continue;
+            if (uuid == null && template.contains("{uuid}")) continue;
+
+            ids.add(entry.getKey());
+            keys.add(redisCache.getKeyPrefix() + resolve(template, uuid, name));
+        }
+
+        if (keys.isEmpty()) return;
+
+        // Si se escribe alguna clave mientras llega el MGET, la respuesta puede ser anterior
+        long version = data.version.get();
+        CompletableFuture<Void> fetch = redisManager.mgetAsync(keys.toArray(new String[0]))
+                .thenAccept(values -> {
+                    if (values == null || data.version.get() != version) return;
+                    for (int i = 0; i < ids.size(); i++) {
+                        data.values.putIfAbsent(ids.get(i), new Slot(values.get(i)));
+                    }
+                });
+
+        data.pending = data.pending.thenCombine(fetch, (a, b) -> null);
+
+        if (plugin.getConfigManager().isDebugEnabled()) {
+            plugin.getLogger().info("§7[DEBUG] §fPrecargando §e" + keys.size() + " §fclaves para §e" + name);
+        }
+    }
+
+    /**
+     * Obtiene un valor precargado; si no está disponible se lee de Redis
+     */
+    public String getString(UUID uuid, String id) {
+        PlayerData data = dataOf(uuid);
+        if (data != null) {
+            Slot slot = data.values.get(id);
+            if (slot != null) {
+                if (System.currentTimeMillis() - slot.loadedAt <= maxAgeMillis) return slot.value;
+                data.values.remove(id, slot);
+            }
+        }
+
+        String template = templates.get(id);
+        if (template == null) return null;
+
+        return redisCache.getString(resolve(template, uuid, namesByUuid.get(uuid)));
+    }
+
+    /**
+     * Espera a que termine la precarga en curso y devuelve el valor
+     */
+    public CompletableFuture<String> getStringAsync(UUID uuid, String id) {
+        PlayerData data = dataOf(uuid);
+        if (data == null) {
+            return CompletableFuture.supplyAsync(() -> getString(uuid, id), redisManager.getExecutorService());
+        }
+
+        return data.pending.handle((ignored, throwable) -> null)
+                .thenApply(ignored -> getString(uuid, id));
+    }
+
+    public <T> T getObject(UUID uuid, String id, Class<T> clazz) {
+        String json = getString(uuid, id);
+        if (json == null) return null;
+
+        try {
+            return gson.fromJson(json, clazz);
+        } catch (Exception e) {
+            plugin.getLogger().error("Error al deserializar objeto precargado:", e);
+            return null;
+        }
+    }
+
+    /**
+     * Descarta el valor local para que la siguiente lectura vaya a Redis
+     */
+    public void invalidate(UUID uuid, String id) {
+        PlayerData data = dataOf(uuid);
+        if (data != null) {
+            data.version.incrementAndGet();
+            data.values.remove(id);
+        }
+    }
+
+    /**
+     * Descarta el valor precargado cuya clave coincide con la escrita en RedisCache
+     */
+    private void onCacheWrite(String key) {
+        for (Map.Entry<String, KeyMatcher> entry : templatePatterns.entrySet()) {
+            // Comprobación barata antes de la expresión regular, que reserva un Matcher
+            KeyMatcher keyMatcher = entry.getValue();
+            if (!keyMatcher.mayMatch(key)) continue;
+
+            Matcher matcher = keyMatcher.pattern.matcher(key);
+            if (!matcher.matches()) continue;
+
+            PlayerData data = dataOf(matcher);
+            if (data != null) {
+                data.version.incrementAndGet();
+                data.values.remove(entry.getKey());
+            }
+        }
+    }
+
+    private PlayerData dataOf(Matcher matcher) {
+        String template = matcher.pattern().pattern();
+        if (template.contains("(?<uuid>")) {
+            try {
+                return dataOf(UUID.fromString(matcher.group("uuid")));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        if (template.contains("(?<name>")) {
+            return players.get(normalize(matcher.group("name")));
+        }
+        return null;
+    }
+
+    public Map<String, String> getTemplates() {
+        return Collections.unmodifiableMap(templates);
+    }
+
+    private PlayerData dataOf(UUID uuid) {
+        String name = namesByUuid.get(uuid);
+        return name != null ? players.get(name) : null;
+    }
+
+    private void purgeAbandoned() {
+        long now = System.currentTimeMillis();
+        players.values().removeIf(data -> data.owner == null && now - data.createdAt > PENDING_TIMEOUT_MILLIS);
+        namesByUuid.values().removeIf(name -> !players.containsKey(name));
+    }
+
+    private static String resolve(String template, UUID uuid, String name) {
+        String key = template;
+        if (uuid != null) key = key.replace("{uuid}", uuid.toString());
+        if (name != null) key = key.replace("{name}", name);
+        return key;
+    }
+
+    /**
+     * Patrón que reconoce las claves generadas por una plantilla y captura {uuid} y {name}
+     */
+    private static Pattern compileTemplate(String template) {
+        StringBuilder regex = new StringBuilder();
+        Matcher placeholder = Pattern.compile("\\{(uuid|name)}").matcher(template);
+        Set<String> seen = new HashSet<>();
+        int last = 0;
+
+        while (placeholder.find()) {
+            if (placeholder.start() > last) {
+                regex.append(Pattern.quote(template.substring(last, placeholder.start())));
+            }
+
+            String group = placeholder.group(1);
+            if (!seen.add(group)) {
+                regex.append("\\k<").append(group).append('>');
+            } else if (group.equals("uuid")) {
+                regex.append("(?<uuid>[0-9a-fA-F-]{36})");
+            } else {
+                regex.append("(?<name>[^:]+)");
+            }
+            last = placeholder.end();
+        }
+
+        if (last < template.length()) {
+            regex.append(Pattern.quote(template.substring(last)));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Valor precargado; value es null si la clave no existe en Redis
+     */
+    private static final class Slot {
+        private final String value;
+        private final long loadedAt = System.currentTimeMillis();
+
+        private Slot(String value) {
+            this.value = value;
+        }
+    }
+
+    private static final class PlayerData {
+        private final Map<String, Slot> values = new ConcurrentHashMap<>();
+        private final long createdAt = System.currentTimeMillis();
+        private final AtomicLong version = new AtomicLong();
+        private volatile CompletableFuture<Void> pending = CompletableFuture.completedFuture(null);
+        // Sesión que completó el login; null mientras sólo hay PreLogin
+        private volatile Player owner;
+    }
+
+    /**
+     * Reconoce las claves de una plantilla. Los textos fijos antes del primer
+     * marcador y después del último descartan casi todas las claves sin regex.
+     */
+    private static final class KeyMatcher {
+        private final String prefix;
+        private final String suffix;
+        private final Pattern pattern;
+
+        private KeyMatcher(String template) {
+            int first = template.indexOf('{');
+            int last = template.lastIndexOf('}');
+            this.prefix = first < 0 ? template : template.substring(0, first);
+            this.suffix = first < 0 || last < 0 ? "" : template.substring(last + 1);
+            this.pattern = compileTemplate(template);
+        }
+
+        private boolean mayMatch(String key) {
+            return key.length() >= prefix.length() + suffix.length()
+                    && key.startsWith(prefix) && key.endsWith(suffix);
+        }
+    }
+}
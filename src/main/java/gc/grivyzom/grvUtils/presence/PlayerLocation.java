@@ -0,0 +1,32 @@
+package gc.grivyzom.grvUtils.presence;
+
+import java.util.UUID;
+
+/**
+ * Ubicación de un jugador en la red: proxy y servidor backend
+ */
+public class PlayerLocation {
+
+    private final UUID uuid;
+    private final String name;
+    private final String proxy;
+    private final String server;
+    final long updatedAt;
+
+    PlayerLocation(UUID uuid, String name, String proxy, String server, long updatedAt) {
+        this.uuid = uuid;
+        this.name = name;
+        this.proxy = proxy;
+        this.server = server;
+        this.updatedAt = updatedAt;
+    }
+
+    public UUID getUuid() { return uuid; }
+    public String getName() { return name; }
+    public String getProxy() { return proxy; }
+    public String getServer() { return server; }
+
+    boolean sameAs(String otherProxy, String otherServer) {
+        return proxy.equals(otherProxy) && server.equals(otherServer);
+    }
+}
@@ -0,0 +1,426 @@
+package gc.grivyzom.grvUtils.presence;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.connection.DisconnectEvent;
+import com.velocitypowered.api.event.player.ServerConnectedEvent;
+import com.velocitypowered.api.proxy.Player;
+import gc.grivyzom.grvUtils.GrvUtils;
+import gc.grivyzom.grvUtils.redis.RedisManager;
+import gc.grivyzom.grvUtils.redis.RedisMessenger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Índice replicado de la ubicación de los jugadores en la red.
+ *
+ * Cada proxy aplica sus eventos de conexión al momento, los agrupa y los envía
+ * como deltas al resto, y además los guarda en su propio hash de Redis
+ * (grvutils:presence:&lt;proxy&gt;). Periódicamente cada proxy reescribe su hash
+ * y relee los de los demás para corregir deltas perdidos y olvidar proxies
+ * caídos. Todas las consultas se resuelven en memoria.
+ */
+public class PresenceIndex {
+
+    private static final String DELTA_MESSAGE = "presence_delta";
+    private static final String KEY_PREFIX = "grvutils:presence:";
+
+    private final GrvUtils plugin;
+    private final RedisManager redisManager;
+    private final RedisMessenger redisMessenger;
+    private final Gson gson;
+    private final String proxyId;
+    private final String proxiesKey;
+    private final String hashKey;
+    private final long antiEntropyMillis;
+    private final Map<UUID, PlayerLocation> locations;
+    private final Map<String, UUID> uuidsByName;
+    private final Map<String, Integer> serverCounts;
+    private final Map<UUID, Long> recentRemovals;
+    private final Queue<Change> pendingChanges;
+    // Cambios cuyo pipeline falló; protegidos por writeLock
+    private final Map<UUID, Change> unsentChanges = new LinkedHashMap<>();
+    private final Object lock = new Object();
+    private final Object writeLock = new Object();
+    private final ScheduledFuture<?> flushTask;
+    private final ScheduledFuture<?> antiEntropyTask;
+    // Se activa bajo writeLock al borrar nuestro hash; después no se escribe nada más
+    private volatile boolean stopped;
+
+    public PresenceIndex(GrvUtils plugin) {
+        this.plugin = plugin;
+        this.redisManager = plugin.getRedisManager();
+        this.redisMessenger = plugin.getRedisMessenger();
+        this.gson = new Gson();
+        this.proxyId = redisMessenger.getServerIdentifier();
+        this.proxiesKey = KEY_PREFIX + "proxies";
+        this.hashKey = KEY_PREFIX + proxyId;
+        this.antiEntropyMillis = TimeUnit.SECONDS.toMillis(
+                Math.max(1, plugin.getConfigManager().getPresenceAntiEntropyInterval()));
+        this.locations = new ConcurrentHashMap<>();
+        this.uuidsByName = new ConcurrentHashMap<>();
+        this.serverCounts = new ConcurrentHashMap<>();
+        this.recentRemovals = new ConcurrentHashMap<>();
+        this.pendingChanges = new ConcurrentLinkedQueue<>();
+
+        // Jugadores ya conectados si el plugin se carga con el proxy en marcha
+        long now = System.currentTimeMillis();
+        for (Player player : plugin.getServer().getAllPlayers()) {
+            player.getCurrentServer().ifPresent(connection -> apply(proxyId,
+                    new Change(player.getUniqueId(), player.getUsername(), connection.getServerInfo().getName()), now));
+        }
+
+        redisMessenger.registerHandler(DELTA_MESSAGE, PresenceDelta.class, this::handleDelta);
+
+        long flushInterval = Math.max(10, plugin.getConfigManager().getPresenceFlushInterval());
+        this.flushTask = redisManager.getExecutorService().scheduleAtFixedRate(
+                this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        this.antiEntropyTask = redisManager.getExecutorService().scheduleAtFixedRate(
+                () -> redisManager.getIoExecutor().execute(this::antiEntropy),
+                antiEntropyMillis, antiEntropyMillis, TimeUnit.MILLISECONDS);
+
+        // Primera sincronización completa en cuanto Redis esté listo
+        redisManager.whenReady().thenRunAsync(this::antiEntropy, redisManager.getIoExecutor());
+    }
+
+    @Subscribe
+    public void onServerConnected(ServerConnectedEvent event) {
+        Player player = event.getPlayer();
+        Change change = new Change(player.getUniqueId(), player.getUsername(),
+                event.getServer().getServerInfo().getName());
+        apply(proxyId, change, System.currentTimeMillis());
+        pendingChanges.add(change);
+    }
+
+    @Subscribe
+    public void onDisconnect(DisconnectEvent event) {
+        Player player = event.getPlayer();
+        if (!locations.containsKey(player.getUniqueId())) return;
+
+        Change change = new Change(player.getUniqueId(), player.getUsername(), null);
+        apply(proxyId, change, System.currentTimeMillis());
+        pendingChanges.add(change);
+    }
+
+    // Consultas locales, sin tráfico hacia Redis
+
+    public PlayerLocation getLocation(UUID uuid) {
+        return locations.get(uuid);
+    }
+
+    public PlayerLocation getLocation(String name) {
+        UUID uuid = uuidsByName.get(normalize(name));
+        return uuid != null ? locations.get(uuid) : null;
+    }
+
+    public String getServer(UUID uuid) {
+        PlayerLocation location = locations.get(uuid);
+        return location != null ? location.getServer() : null;
+    }
+
+    public String getProxy(UUID uuid) {
+        PlayerLocation location = locations.get(uuid);
+        return location != null ? location.getProxy() : null;
+    }
+
+    public boolean isOnline(UUID uuid) {
+        return locations.containsKey(uuid);
+    }
+
+    public int getServerCount(String server) {
+        return serverCounts.getOrDefault(server, 0);
+    }
+
+    public Map<String, Integer> getServerCounts() {
+        return Collections.unmodifiableMap(serverCounts);
+    }
+
+    public int getOnlineCount() {
+        return locations.size();
+    }
+
+    public String getProxyId() {
+        return proxyId;
+    }
+
+    /**
+     * Aplica un cambio a la réplica. Una desconexión sólo borra al jugador si
+     * sigue registrado en el proxy que la envía, para que un delta atrasado no
+     * borre a quien ya se ha movido a otro proxy.
+     */
+    private void apply(String proxy, Change change, long now) {
+        synchronized (lock) {
+            PlayerLocation current = locations.get(change.uuid);
+
+            if (change.server == null) {
+                if (current == null || !current.getProxy().equals(proxy)) return;
+                remove(current);
+                recentRemovals.put(change.uuid, now);
+                return;
+            }
+
+            if (current != null) {
+                if (current.sameAs(proxy, change.server)) return;
+                remove(current);
+            }
+            add(new PlayerLocation(change.uuid, change.name, proxy, change.server, now));
+            recentRemovals.remove(change.uuid);
+        }
+    }
+
+    private void add(PlayerLocation location) {
+        locations.put(location.getUuid(), location);
+        if (location.getName() != null) {
+            uuidsByName.put(normalize(location.getName()), location.getUuid());
+        }
+        serverCounts.merge(location.getServer(), 1, Integer::sum);
+    }
+
+    private void remove(PlayerLocation location) {
+        locations.remove(location.getUuid());
+        if (location.getName() != null) {
+            uuidsByName.remove(normalize(location.getName()), location.getUuid());
+        }
+        serverCounts.computeIfPresent(location.getServer(), (server, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private void handleDelta(PresenceDelta delta) {
+        if (delta.proxy == null || proxyId.equals(delta.proxy)) return;
+
+        long now = System.currentTimeMillis();
+        if (delta.left) {
+            removeProxy(delta.proxy, now);
+            return;
+        }
+        if (delta.changes != null) {
+            for (Change change : delta.changes) {
+                apply(delta.proxy, change, now);
+            }
+        }
+    }
+
+    private void removeProxy(String proxy, long now) {
+        synchronized (lock) {
+            for (PlayerLocation location : new ArrayList<>(locations.values())) {
+                if (location.getProxy().equals(proxy)) {
+                    remove(location);
+                    recentRemovals.put(location.getUuid(), now);
+                }
+            }
+        }
+    }
+
+    /**
+     * Envía los cambios acumulados: un único delta y un único pipeline. Si el
+     * pipeline falla, los cambios se reintentan en el siguiente envío (HSET y HDEL
+     * son idempotentes) y el delta no se publica hasta entonces.
+     */
+    private void flush() {
+        List<Change> changes;
+        try {
+            synchronized (writeLock) {
+                if (stopped || (pendingChanges.isEmpty() && unsentChanges.isEmpty())) return;
+
+                // Sólo cuenta el último cambio de cada jugador; los no enviados van antes que los nuevos
+                Map<UUID, Change> latest = new LinkedHashMap<>(unsentChanges);
+                unsentChanges.clear();
+                Change change;
+                while ((change = pendingChanges.poll()) != null) {
+                    latest.remove(change.uuid);
+                    latest.put(change.uuid, change);
+                }
+                changes = new ArrayList<>(latest.values());
+
+                boolean written = redisManager.pipelined(pipeline -> {
+                    for (Change c : changes) {
+                        if (c.server == null) {
+                            pipeline.hdel(hashKey, c.uuid.toString());
+                        } else {
+                            pipeline.hset(hashKey, c.uuid.toString(), gson.toJson(c));
+                        }
+                    }
+                });
+                if (!written) {
+                    unsentChanges.putAll(latest);
+                    return;
+                }
+            }
+            redisMessenger.send(DELTA_MESSAGE, new PresenceDelta(proxyId, changes, false));
+        } catch (Exception e) {
+            plugin.getLogger().error("Error al enviar cambios de presencia:", e);
+        }
+    }
+
+    /**
+     * Reescribe el hash de este proxy con su estado local y reconstruye la parte
+     * de la réplica que pertenece a los demás proxies vivos
+     */
+    private void antiEntropy() {
+        if (stopped || !redisManager.isConnected()) return;
+
+        try {
+            long start = System.currentTimeMillis();
+            long ttl = antiEntropyMillis * 3;
+
+            if (!publishOwnState(start, ttl)) return;
+
+            List<String> proxies = redisManager.zrangeByScore(proxiesKey, start, Double.POSITIVE_INFINITY);
+            Map<UUID, PlayerLocation> remote = new HashMap<>();
+            for (String proxy : proxies) {
+                if (proxy.equals(proxyId)) continue;
+
+                for (Map.Entry<String, String> entry : redisManager.hgetAll(KEY_PREFIX + proxy).entrySet()) {
+                    Change stored = parse(entry.getValue());
+                    if (stored == null || stored.uuid == null || stored.server == null) continue;
+                    remote.put(stored.uuid, new PlayerLocation(stored.uuid, stored.name, proxy, stored.server, start));
+                }
+            }
+
+            merge(remote, start);
+        } catch (Exception e) {
+            plugin.getLogger().error("Error al sincronizar el índice de presencia:", e);
+        }
+    }
+
+    /**
+     * @return false si el índice ya se ha cerrado y no se ha escrito nada
+     */
+    private boolean publishOwnState(long now, long ttl) {
+        Map<String, String> own = new HashMap<>();
+        synchronized (lock) {
+            for (PlayerLocation location : locations.values()) {
+                if (location.getProxy().equals(proxyId)) {
+                    own.put(location.getUuid().toString(),
+                            gson.toJson(new Change(location.getUuid(), location.getName(), location.getServer())));
+                }
+            }
+        }
+
+        synchronized (writeLock) {
+            // Una sincronización en curso al cerrar no debe recrear el hash ni la entrada en la lista
+            if (stopped) return false;
+
+            Map<String, String> stored = redisManager.hgetAll(hashKey);
+            redisManager.pipelined(pipeline -> {
+                for (String field : stored.keySet()) {
+                    if (!own.containsKey(field)) pipeline.hdel(hashKey, field);
+                }
+                own.forEach((field, value) -> {
+                    if (!value.equals(stored.get(field))) pipeline.hset(hashKey, field, value);
+                });
+                pipeline.pexpire(hashKey, ttl);
+                pipeline.zadd(proxiesKey, now + ttl, proxyId);
+                pipeline.zremrangeByScore(proxiesKey, Double.NEGATIVE_INFINITY, now);
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Sustituye las entradas de otros proxies por las leídas de Redis, salvo las
+     * que algún delta ha modificado después de empezar la lectura
+     */
+    private void merge(Map<UUID, PlayerLocation> remote, long start) {
+        synchronized (lock) {
+            for (PlayerLocation location : new ArrayList<>(locations.values())) {
+                if (location.getProxy().equals(proxyId) || location.updatedAt >= start) continue;
+                if (!remote.containsKey(location.getUuid())) {
+                    remove(location);
+                }
+            }
+
+            for (PlayerLocation location : remote.values()) {
+                PlayerLocation current = locations.get(location.getUuid());
+                if (current != null && (current.updatedAt >= start || current.getProxy().equals(proxyId))) continue;
+
+                Long removedAt = recentRemovals.get(location.getUuid());
+                if (removedAt != null && removedAt >= start) continue;
+
+                if (current != null) {
+                    if (current.sameAs(location.getProxy(), location.getServer())) continue;
+                    remove(current);
+                }
+                add(location);
+            }
+
+            recentRemovals.values().removeIf(removedAt -> removedAt < start);
+        }
+    }
+
+    private Change parse(String json) {
+        try {
+            return gson.fromJson(json, Change.class);
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    public void shutdown() {
+        flushTask.cancel(false);
+        antiEntropyTask.cancel(false);
+        flush();
+
+        // El resto de proxies olvida a nuestros jugadores sin esperar a la siguiente sincronización
+        synchronized (writeLock) {
+            stopped = true;
+            redisManager.delete(hashKey);
+            redisManager.zrem(proxiesKey, proxyId);
+        }
+        redisMessenger.send(DELTA_MESSAGE, new PresenceDelta(proxyId, Collections.emptyList(), true));
+    }
+
+    /**
+     * Cambio de ubicación de un jugador; server null indica desconexión
+     */
+    public static class Change {
+        private final UUID uuid;
+        private final String name;
+        private final String server;
+
+        public Change(UUID uuid, String name, String server) {
+            this.uuid = uuid;
+            this.name = name;
+            this.server = server;
+        }
+
+        public UUID getUuid() { return uuid; }
+        public String getName() { return name; }
+        public String getServer() { return server; }
+    }
+
+    /**
+     * Cambios enviados por un proxy; left indica que el proxy se ha apagado
+     */
+    public static class PresenceDelta {
+        private final String proxy;
+        private final List<Change> changes;
+        private final boolean left;
+
+        public PresenceDelta(String proxy, List<Change> changes, boolean left) {
+            this.proxy = proxy;
+            this.changes = changes;
+            this.left = left;
+        }
+
+        public String getProxy() { return proxy; }
+        public List<Change> getChanges() { return changes; }
+        public boolean isLeft() { return left; }
+    }
+}
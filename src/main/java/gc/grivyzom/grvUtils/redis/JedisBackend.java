@@ -0,0 +1,865 @@
+package gc.grivyzom.grvUtils.redis;
+
+import gc.grivyzom.grvUtils.GrvUtils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+import redis.clients.jedis.resps.Tuple;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Backend sobre un servidor Redis real: pool de Jedis y, opcionalmente, el
+ * multiplexor de pipelining automático
+ */
+class JedisBackend implements RedisBackend {
+
+    private final GrvUtils plugin;
+    private volatile JedisPool jedisPool;
+    private volatile RedisPipelineMultiplexer multiplexer;
+    private final ScheduledExecutorService executorService;
+    private final ExecutorService ioExecutor;
+    private final long defaultAsyncTimeoutMillis;
+    private volatile CompletableFuture<Void> ready;
+    private volatile ScheduledFuture<?> connectTask;
+    private volatile boolean connected = false;
+    private volatile boolean closed = false;
+
+    JedisBackend(GrvUtils plugin, ScheduledExecutorService executorService, ExecutorService ioExecutor) {
+        this.plugin = plugin;
+        this.executorService = executorService;
+        this.ioExecutor = ioExecutor;
+        this.defaultAsyncTimeoutMillis = plugin.getConfigManager().getRedisAsyncTimeout();
+        this.ready = new CompletableFuture<>();
+    }
+
+    /**
+     * Prepara el pool y conecta en segundo plano, reintentando con espera
+     * exponencial. No bloquea el arranque del proxy.
+     * @return futuro que se completa cuando Redis está listo
+     */
+    @Override
+    public CompletableFuture<Void> connect() {
+        try {
+            // Configurar pool de conexiones
+            JedisPoolConfig poolConfig = new JedisPoolConfig();
+            poolConfig.setMaxTotal(plugin.getConfigManager().getRedisPoolMaxTotal());
+            poolConfig.setMaxIdle(plugin.getConfigManager().getRedisPoolMaxIdle());
+            poolConfig.setMinIdle(plugin.getConfigManager().getRedisPoolMinIdle());
+            // Con pipelining la salud de las conexiones se comprueba en segundo plano
+            boolean pipelining = plugin.getConfigManager().isRedisPipeliningEnabled();
+            poolConfig.setTestOnBorrow(!pipelining);
+            poolConfig.setTestOnReturn(!pipelining);
+            poolConfig.setTestWhileIdle(true);
+            poolConfig.setMinEvictableIdleTimeMillis(Duration.ofSeconds(60).toMillis());
+            poolConfig.setTimeBetweenEvictionRunsMillis(Duration.ofSeconds(30).toMillis());
+            poolConfig.setNumTestsPerEvictionRun(3);
+            poolConfig.setBlockWhenExhausted(true);
+
+            // Crear pool
+            String password = plugin.getConfigManager().getRedisPassword();
+            if (password.isEmpty()) {
+                jedisPool = new JedisPool(
+                        poolConfig,
+                        plugin.getConfigManager().getRedisHost(),
+                        plugin.getConfigManager().getRedisPort(),
+                        plugin.getConfigManager().getRedisTimeout(),
+                        null,
+                        plugin.getConfigManager().getRedisDatabase()
+                );
+            } else {
+                jedisPool = new JedisPool(
+                        poolConfig,
+                        plugin.getConfigManager().getRedisHost(),
+                        plugin.getConfigManager().getRedisPort(),
+                        plugin.getConfigManager().getRedisTimeout(),
+                        password,
+                        plugin.getConfigManager().getRedisDatabase()
+                );
+            }
+
+        } catch (Exception e) {
+            plugin.getLogger().error("§c✗ §fError al configurar Redis:", e);
+            ready.completeExceptionally(e);
+            return whenReady();
+        }
+
+        plugin.getLogger().info("§b▶ §fConectando con Redis en segundo plano...");
+        connectTask = executorService.schedule(() -> connect(1, true), 0, TimeUnit.MILLISECONDS);
+        return whenReady();
+    }
+
+    /**
+     * Intento de conexión; si falla programa el siguiente con espera exponencial.
+     * El límite de reintentos sólo se aplica al arranque: tras perder la conexión
+     * se sigue reintentando hasta que vuelva o se apague el plugin.
+     */
+    private void connect(int attempt, boolean startup) {
+        CompletableFuture<Void> ready = this.ready;
+        if (ready.isDone()) return;
+
+        try {
+            // Probar conexión
+            testConnection();
+
+            // Abrir ya las conexiones mínimas para que las primeras operaciones no esperen
+            jedisPool.preparePool();
+
+            // Tras perder la conexión las vías del multiplexor anterior pueden seguir
+            // apuntando a sockets muertos: al reconectar se sustituye por uno nuevo
+            RedisPipelineMultiplexer fresh = null;
+            if (plugin.getConfigManager().isRedisPipeliningEnabled() && (!startup || multiplexer == null)) {
+                fresh = new RedisPipelineMultiplexer(plugin);
+            }
+
+            RedisPipelineMultiplexer stale = null;
+            synchronized (this) {
+                if (closed) {
+                    if (fresh != null) fresh.shutdown();
+                    return;
+                }
+                if (fresh != null) {
+                    stale = multiplexer;
+                    multiplexer = fresh;
+                }
+                connected = true;
+            }
+
+            if (stale != null) {
+                stale.shutdown();
+                plugin.getLogger().info("§b▶ §fConexiones compartidas de pipelining renovadas");
+            } else if (fresh != null) {
+                plugin.getLogger().info("§b▶ §fPipelining automático: §e" + fresh.getConnectionCount() + " conexiones compartidas");
+            }
+
+            plugin.getLogger().info("§a✓ §fRedis conectado correctamente");
+            plugin.getLogger().info("§b▶ §fHost: §e" + plugin.getConfigManager().getRedisHost() + ":" + plugin.getConfigManager().getRedisPort());
+            plugin.getLogger().info("§b▶ §fBase de datos: §e" + plugin.getConfigManager().getRedisDatabase());
+            plugin.getLogger().info("§b▶ §fConexiones preparadas: §e" + jedisPool.getNumIdle());
+
+            ready.complete(null);
+
+        } catch (Exception e) {
+            int maxRetries = plugin.getConfigManager().getRedisStartupMaxRetries();
+            if (startup && maxRetries > 0 && attempt > maxRetries) {
+                plugin.getLogger().error("§c✗ §fNo se pudo conectar con Redis tras " + attempt + " intentos:", e);
+                ready.completeExceptionally(e);
+                return;
+            }
+
+            long initial = Math.max(100, plugin.getConfigManager().getRedisStartupInitialBackoff());
+            long max = Math.max(initial, plugin.getConfigManager().getRedisStartupMaxBackoff());
+            long backoff = Math.min(max, initial << Math.min(attempt - 1, 20));
+
+            plugin.getLogger().warn("§c✗ §fError al conectar con Redis (intento " + attempt +
+                    "), reintentando en " + backoff + "ms: " + e.getMessage());
+            connectTask = executorService.schedule(() -> connect(attempt + 1, startup), backoff, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Si el error es de conexión, deja de considerar Redis listo y empieza a
+     * reconectar. Mientras tanto isConnected() es false y las operaciones
+     * asíncronas esperan en queueUntilReady a que vuelva.
+     */
+    private void onFailure(Throwable throwable) {
+        if (!isConnectionFailure(throwable)) return;
+
+        synchronized (this) {
+            if (!connected || closed) return;
+            // Primero el nuevo futuro, para que nadie vea desconectado con el anterior ya completo
+            ready = new CompletableFuture<>();
+            connected = false;
+        }
+
+        plugin.getLogger().warn("§c✗ §fConexión con Redis perdida, reconectando: " + throwable.getMessage());
+        connectTask = executorService.schedule(() -> connect(1, false), 0, TimeUnit.MILLISECONDS);
+    }
+
+    private static boolean isConnectionFailure(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof JedisConnectionException) return true;
+        }
+        return false;
+    }
+
+    private void testConnection() throws Exception {
+        try (Jedis jedis = jedisPool.getResource()) {
+            String response = jedis.ping();
+            if (!"PONG".equals(response)) {
+                throw new Exception("Respuesta inesperada del ping: " + response);
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        synchronized (this) {
+            closed = true;
+            connected = false;
+        }
+        if (connectTask != null) {
+            connectTask.cancel(false);
+        }
+        // Las operaciones en espera fallan en lugar de quedarse colgadas
+        ready.completeExceptionally(new IllegalStateException("Redis se ha cerrado"));
+
+        RedisPipelineMultiplexer current = multiplexer;
+        if (current != null) {
+            current.shutdown();
+            multiplexer = null;
+        }
+
+        if (jedisPool != null && !jedisPool.isClosed()) {
+            jedisPool.close();
+        }
+    }
+
+    /**
+     * true si la última conexión funcionó; pasa a false en cuanto un comando
+     * falla por error de conexión y vuelve a true al reconectar
+     */
+    @Override
+    public boolean isConnected() {
+        return connected && jedisPool != null && !jedisPool.isClosed();
+    }
+
+    /**
+     * Futuro que se completa al quedar Redis listo, o falla si Redis está
+     * deshabilitado, se agotan los reintentos o el plugin se apaga. Tras una
+     * caída de la conexión se completa cuando se reconecta.
+     */
+    @Override
+    public CompletableFuture<Void> whenReady() {
+        return ready.copy();
+    }
+
+    /**
+     * Ejecuta un comando por el multiplexor si está activo o con una conexión del pool
+     */
+    private <T> T execute(Function<Jedis, T> direct, Function<Pipeline, ? extends Supplier<T>> pipelined,
+                          T fallback, String errorMessage) {
+        if (!isConnected()) return fallback;
+
+        try {
+            if (multiplexer != null) {
+                return multiplexer.execute(pipelined);
+            }
+
+            try (Jedis jedis = jedisPool.getResource()) {
+                return direct.apply(jedis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback;
+        } catch (Exception e) {
+            plugin.getLogger().error(errorMessage, e);
+            onFailure(e);
+            return fallback;
+        }
+    }
+
+    // Métodos síncronos
+    @Override
+    public void set(String key, String value) {
+        execute(jedis -> jedis.set(key, value), p -> p.set(key, value),
+                null, "Error al establecer valor en Redis:");
+    }
+
+    @Override
+    public void set(String key, String value, int seconds) {
+        execute(jedis -> jedis.setex(key, seconds, value), p -> p.setex(key, seconds, value),
+                null, "Error al establecer valor con expiración en Redis:");
+    }
+
+    @Override
+    public String get(String key) {
+        return execute(jedis -> jedis.get(key), p -> p.get(key),
+                null, "Error al obtener valor de Redis:");
+    }
+
+    @Override
+    public void delete(String key) {
+        execute(jedis -> jedis.del(key), p -> p.del(key),
+                null, "Error al eliminar clave de Redis:");
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return execute(jedis -> jedis.exists(key), p -> p.exists(key),
+                false, "Error al verificar existencia de clave en Redis:");
+    }
+
+    @Override
+    public void expire(String key, int seconds) {
+        execute(jedis -> jedis.expire(key, seconds), p -> p.expire(key, seconds),
+                null, "Error al establecer expiración en Redis:");
+    }
+
+    // Variantes binarias: la clave y el valor ya vienen codificados
+    @Override
+    public void set(byte[] key, byte[] value) {
+        execute(jedis -> jedis.set(key, value), p -> p.set(key, value),
+                null, "Error al establecer valor en Redis:");
+    }
+
+    @Override
+    public void set(byte[] key, byte[] value, int seconds) {
+        execute(jedis -> jedis.setex(key, seconds, value), p -> p.setex(key, seconds, value),
+                null, "Error al establecer valor con expiración en Redis:");
+    }
+
+    @Override
+    public byte[] getBytes(byte[] key) {
+        return execute(jedis -> jedis.get(key), p -> p.get(key),
+                null, "Error al obtener valor de Redis:");
+    }
+
+    /**
+     * Obtiene un valor junto a su TTL restante (GET + PTTL en un mismo pipeline)
+     */
+    @Override
+    public RedisManager.TimedValue getWithTtl(String key) {
+        if (!isConnected()) return null;
+
+        try {
+            if (multiplexer != null) {
+                // Un único envío: GET y PTTL van seguidos en el mismo pipeline de la misma conexión
+                AtomicReference<Response<String>> value = new AtomicReference<>();
+                Long ttl = multiplexer.execute(p -> {
+                    value.set(p.get(key));
+                    return p.pttl(key);
+                });
+                return new RedisManager.TimedValue(value.get().get(), ttl);
+            }
+
+            try (Jedis jedis = jedisPool.getResource()) {
+                Pipeline pipeline = jedis.pipelined();
+                Response<String> value = pipeline.get(key);
+                Response<Long> ttl = pipeline.pttl(key);
+                pipeline.sync();
+                return new RedisManager.TimedValue(value.get(), ttl.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            plugin.getLogger().error("Error al obtener valor de Redis:", e);
+            onFailure(e);
+            return null;
+        }
+    }
+
+    @Override
+    public CompletableFuture<RedisManager.TimedValue> getWithTtlAsync(String key) {
+        if (!isConnected()) {
+            return queueUntilReady(() -> getWithTtlAsync(key), null);
+        }
+        return CompletableFuture.supplyAsync(() -> getWithTtl(key), ioExecutor);
+    }
+
+    @Override
+    public List<String> mget(String... keys) {
+        if (keys.length == 0) return Collections.emptyList();
+
+        return execute(jedis -> jedis.mget(keys), p -> p.mget(keys),
+                null, "Error al obtener varios valores de Redis:");
+    }
+
+    /**
+     * Versión asíncrona de execute. Con el multiplexor activo el comando se encola
+     * sin ocupar un hilo; si no, se ejecuta en el pool de E/S. Si el futuro se
+     * cancela o vence su plazo antes de ejecutarse, no llega a pedir conexión.
+     */
+    private <T> CompletableFuture<T> executeAsync(Function<Jedis, T> direct, Function<Pipeline, ? extends Supplier<T>> pipelined,
+                                                  T fallback, String errorMessage) {
+        if (!isConnected()) {
+            return queueUntilReady(() -> executeAsync(direct, pipelined, fallback, errorMessage), fallback);
+        }
+
+        CompletableFuture<T> future;
+
+        if (multiplexer != null && isConnected()) {
+            CompletableFuture<T> submitted = multiplexer.submit(pipelined);
+            future = submitted.exceptionally(throwable -> {
+                plugin.getLogger().error(errorMessage, throwable);
+                onFailure(throwable);
+                return fallback;
+            });
+            future.whenComplete((result, throwable) -> {
+                if (throwable != null) submitted.cancel(false);
+            });
+        } else {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            Future<?> task = ioExecutor.submit(() -> {
+                if (result.isDone()) return;
+                result.complete(execute(direct, pipelined, fallback, errorMessage));
+            });
+            result.whenComplete((value, throwable) -> {
+                if (throwable != null) task.cancel(false);
+            });
+            future = result;
+        }
+
+        return withDeadline(future, defaultAsyncTimeoutMillis);
+    }
+
+    /**
+     * Operación pedida antes de que Redis esté listo: espera como mucho
+     * redis.startup.queue-timeout y falla con TimeoutException si no llega a
+     * conectar. Si Redis ya no va a estar disponible devuelve el valor por defecto.
+     */
+    private <T> CompletableFuture<T> queueUntilReady(Supplier<CompletableFuture<T>> operation, T fallback) {
+        if (ready.isDone() && !isConnected()) {
+            return CompletableFuture.completedFuture(fallback);
+        }
+
+        long queueTimeout = plugin.getConfigManager().getRedisStartupQueueTimeout();
+        CompletableFuture<Void> waiting = ready.copy();
+        if (queueTimeout > 0) {
+            waiting.orTimeout(queueTimeout, TimeUnit.MILLISECONDS);
+        }
+
+        // Igual que thenCompose, pero cancelar el resultado también cancela la operación interna
+        CompletableFuture<T> result = new CompletableFuture<>();
+        waiting.whenComplete((ignored, throwable) -> {
+            if (throwable != null) {
+                result.completeExceptionally(throwable);
+                return;
+            }
+            if (result.isDone()) return;
+
+            CompletableFuture<T> inner = operation.get();
+            inner.whenComplete((value, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+            result.whenComplete((value, error) -> {
+                if (error != null) inner.cancel(false);
+            });
+        });
+        result.whenComplete((value, throwable) -> {
+            if (throwable != null) waiting.cancel(false);
+        });
+        return result;
+    }
+
+    /**
+     * Descarta el resultado de un comando sin perder la cancelación: si el futuro
+     * devuelto se cancela o vence su plazo, el comando pendiente también se cancela
+     */
+    private static CompletableFuture<Void> discardResult(CompletableFuture<?> source) {
+        CompletableFuture<Void> result = source.thenApply(value -> null);
+        result.whenComplete((value, throwable) -> {
+            if (throwable != null) source.cancel(false);
+        });
+        return result;
+    }
+
+    private static <T> CompletableFuture<T> withDeadline(CompletableFuture<T> future, long millis) {
+        return millis > 0 ? future.orTimeout(millis, TimeUnit.MILLISECONDS) : future;
+    }
+
+    // Métodos asíncronos
+    @Override
+    public CompletableFuture<Void> setAsync(String key, String value) {
+        return discardResult(executeAsync(jedis -> jedis.set(key, value), p -> p.set(key, value),
+                null, "Error al establecer valor en Redis:"));
+    }
+
+    @Override
+    public CompletableFuture<Void> setAsync(String key, String value, int seconds) {
+        return discardResult(executeAsync(jedis -> jedis.setex(key, seconds, value), p -> p.setex(key, seconds, value),
+                null, "Error al establecer valor con expiración en Redis:"));
+    }
+
+    @Override
+    public CompletableFuture<String> getAsync(String key) {
+        return executeAsync(jedis -> jedis.get(key), p -> p.get(key),
+                null, "Error al obtener valor de Redis:");
+    }
+
+    @Override
+    public CompletableFuture<List<String>> mgetAsync(String... keys) {
+        if (keys.length == 0) return CompletableFuture.completedFuture(Collections.emptyList());
+
+        return executeAsync(jedis -> jedis.mget(keys), p -> p.mget(keys),
+                null, "Error al obtener varios valores de Redis:");
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(String key) {
+        return discardResult(executeAsync(jedis -> jedis.del(key), p -> p.del(key),
+                null, "Error al eliminar clave de Redis:"));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> existsAsync(String key) {
+        return executeAsync(jedis -> jedis.exists(key), p -> p.exists(key),
+                false, "Error al verificar existencia de clave en Redis:");
+    }
+
+    @Override
+    public CompletableFuture<Void> expireAsync(String key, int seconds) {
+        return discardResult(executeAsync(jedis -> jedis.expire(key, seconds), p -> p.expire(key, seconds),
+                null, "Error al establecer expiración en Redis:"));
+    }
+
+    // Pub/Sub
+    @Override
+    public void publish(String channel, String message) {
+        execute(jedis -> jedis.publish(channel, message), p -> p.publish(channel, message),
+                null, "Error al publicar mensaje en Redis:");
+    }
+
+    @Override
+    public CompletableFuture<Void> publishAsync(String channel, String message) {
+        return discardResult(executeAsync(jedis -> jedis.publish(channel, message), p -> p.publish(channel, message),
+                null, "Error al publicar mensaje en Redis:"));
+    }
+
+    /**
+     * Publica en un canal sharded (SPUBLISH, Redis 7+)
+     */
+    @Override
+    public void spublish(String channel, String message) {
+        execute(jedis -> jedis.sendCommand(Protocol.Command.SPUBLISH, channel, message),
+                p -> p.sendCommand(Protocol.Command.SPUBLISH, channel, message),
+                null, "Error al publicar mensaje sharded en Redis:");
+    }
+
+    @Override
+    public CompletableFuture<Void> spublishAsync(String channel, String message) {
+        return discardResult(executeAsync(jedis -> jedis.sendCommand(Protocol.Command.SPUBLISH, channel, message),
+                p -> p.sendCommand(Protocol.Command.SPUBLISH, channel, message),
+                null, "Error al publicar mensaje sharded en Redis:"));
+    }
+
+    /**
+     * Crea una suscripción cuyos canales se pueden añadir y quitar en caliente
+     */
+    @Override
+    public MessageSubscription createSubscription(String name, boolean sharded, BiConsumer<String, String> listener) {
+        RedisSubscription subscription = new RedisSubscription(plugin, this, sharded, listener, name);
+        subscription.start();
+        return subscription;
+    }
+
+    // Hash operations
+    @Override
+    public void hset(String key, String field, String value) {
+        execute(jedis -> jedis.hset(key, field, value), p -> p.hset(key, field, value),
+                null, "Error al establecer valor hash en Redis:");
+    }
+
+    @Override
+    public String hget(String key, String field) {
+        return execute(jedis -> jedis.hget(key, field), p -> p.hget(key, field),
+                null, "Error al obtener valor hash de Redis:");
+    }
+
+    @Override
+    public void hdel(String key, String... fields) {
+        execute(jedis -> jedis.hdel(key, fields), p -> p.hdel(key, fields),
+                null, "Error al eliminar campo hash de Redis:");
+    }
+
+    @Override
+    public Map<String, String> hgetAll(String key) {
+        return execute(jedis -> jedis.hgetAll(key), p -> p.hgetAll(key),
+                Collections.emptyMap(), "Error al obtener hash de Redis:");
+    }
+
+    // Sorted set operations
+    @Override
+    public Double zincrby(String key, double increment, String member) {
+        return execute(jedis -> jedis.zincrby(key, increment, member), p -> p.zincrby(key, increment, member),
+                null, "Error al incrementar puntuación en Redis:");
+    }
+
+    @Override
+    public void zadd(String key, double score, String member) {
+        execute(jedis -> jedis.zadd(key, score, member), p -> p.zadd(key, score, member),
+                null, "Error al establecer puntuación en Redis:");
+    }
+
+    @Override
+    public Long zrevrank(String key, String member) {
+        return execute(jedis -> jedis.zrevrank(key, member), p -> p.zrevrank(key, member),
+                null, "Error al obtener posición de Redis:");
+    }
+
+    @Override
+    public Double zscore(String key, String member) {
+        return execute(jedis -> jedis.zscore(key, member), p -> p.zscore(key, member),
+                null, "Error al obtener puntuación de Redis:");
+    }
+
+    @Override
+    public List<RedisManager.ScoredMember> zrevrangeWithScores(String key, long start, long stop) {
+        List<Tuple> tuples = execute(jedis -> jedis.zrevrangeWithScores(key, start, stop),
+                p -> p.zrevrangeWithScores(key, start, stop),
+                Collections.emptyList(), "Error al obtener rango de Redis:");
+
+        List<RedisManager.ScoredMember> members = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            members.add(new RedisManager.ScoredMember(tuple.getElement(), tuple.getScore()));
+        }
+        return members;
+    }
+
+    @Override
+    public List<String> zrangeByScore(String key, double min, double max) {
+        return execute(jedis -> jedis.zrangeByScore(key, min, max), p -> p.zrangeByScore(key, min, max),
+                Collections.emptyList(), "Error al obtener rango por puntuación de Redis:");
+    }
+
+    @Override
+    public void zremrangeByScore(String key, double min, double max) {
+        execute(jedis -> jedis.zremrangeByScore(key, min, max), p -> p.zremrangeByScore(key, min, max),
+                null, "Error al eliminar rango por puntuación de Redis:");
+    }
+
+    @Override
+    public void zrem(String key, String... members) {
+        execute(jedis -> jedis.zrem(key, members), p -> p.zrem(key, members),
+                null, "Error al eliminar miembro de Redis:");
+    }
+
+    // ARGV: secuencia, TTL de la marca, nº de ZADD y después pares puntuación/miembro
+    private static final String SCORE_BATCH_SCRIPT =
+            "local last = tonumber(redis.call('get', KEYS[2]) or '0') " +
+            "if tonumber(ARGV[1]) <= last then return 0 end " +
+            "redis.call('set', KEYS[2], ARGV[1], 'PX', ARGV[2]) " +
+            "local i = 4 " +
+            "for n = 1, tonumber(ARGV[3]) do redis.call('zadd', KEYS[1], ARGV[i], ARGV[i + 1]) i = i + 2 end " +
+            "while i < #ARGV do redis.call('zincrby', KEYS[1], ARGV[i], ARGV[i + 1]) i = i + 2 end " +
+            "return 1";
+
+    @Override
+    public boolean applyScoreBatch(String key, String batchKey, long sequence, Map<String, Double> scores,
+                                   Map<String, Double> increments, long batchTtlMillis) {
+        List<String> keys = List.of(key, batchKey);
+        List<String> args = new ArrayList<>(3 + 2 * (scores.size() + increments.size()));
+        args.add(String.valueOf(sequence));
+        args.add(String.valueOf(Math.max(1, batchTtlMillis)));
+        args.add(String.valueOf(scores.size()));
+        scores.forEach((member, score) -> {
+            args.add(formatScore(score));
+            args.add(member);
+        });
+        increments.forEach((member, delta) -> {
+            args.add(formatScore(delta));
+            args.add(member);
+        });
+
+        // 0 = el lote ya se había aplicado en un envío anterior
+        Object result = execute(jedis -> jedis.eval(SCORE_BATCH_SCRIPT, keys, args),
+                p -> p.eval(SCORE_BATCH_SCRIPT, keys, args),
+                null, "Error al aplicar lote de puntuaciones en Redis:");
+        return result instanceof Long;
+    }
+
+    private static String formatScore(double score) {
+        if (Double.isInfinite(score)) return score > 0 ? "+inf" : "-inf";
+        return Double.toString(score);
+    }
+
+    // Valor de retorno de execute que distingue un pipeline fallido de uno sin respuesta
+    private static final Object PIPELINE_FAILED = new Object();
+
+    // Leases (exclusión mutua entre proxies con expiración)
+    private static final String ACQUIRE_LEASE_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "redis.call('pexpire', KEYS[1], ARGV[2]) return 1 " +
+            "elseif redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then return 1 " +
+            "else return 0 end";
+
+    private static final String RENEW_LEASE_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end";
+
+    private static final String RELEASE_LEASE_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "return redis.call('del', KEYS[1]) else return 0 end";
+
+    /**
+     * Adquiere el lease si está libre o lo renueva si ya es de este propietario
+     * @return true si el propietario tiene el lease durante los próximos ttlMillis
+     */
+    @Override
+    public boolean tryAcquireLease(String key, String owner, long ttlMillis) {
+        return evalLease(ACQUIRE_LEASE_SCRIPT, key, owner, ttlMillis, "Error al adquirir lease en Redis:");
+    }
+
+    /**
+     * Renueva el lease sólo si sigue siendo de este propietario
+     */
+    @Override
+    public boolean renewLease(String key, String owner, long ttlMillis) {
+        return evalLease(RENEW_LEASE_SCRIPT, key, owner, ttlMillis, "Error al renovar lease en Redis:");
+    }
+
+    /**
+     * Libera el lease sólo si sigue siendo de este propietario
+     */
+    @Override
+    public boolean releaseLease(String key, String owner) {
+        return evalLease(RELEASE_LEASE_SCRIPT, key, owner, 0, "Error al liberar lease en Redis:");
+    }
+
+    private boolean evalLease(String script, String key, String owner, long ttlMillis, String errorMessage) {
+        List<String> keys = Collections.singletonList(key);
+        List<String> args = List.of(owner, String.valueOf(ttlMillis));
+        Object result = execute(jedis -> jedis.eval(script, keys, args), p -> p.eval(script, keys, args),
+                null, errorMessage);
+        return result instanceof Long && (Long) result == 1L;
+    }
+
+    /**
+     * Recorre con SCAN las claves que coinciden con el patrón, entregándolas por lotes
+     * @return true si el recorrido terminó sin errores
+     */
+    @Override
+    public boolean scan(String pattern, int batchSize, Consumer<List<String>> consumer) {
+        if (!isConnected()) return false;
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            ScanParams params = new ScanParams().match(pattern).count(batchSize);
+            String cursor = ScanParams.SCAN_POINTER_START;
+            do {
+                ScanResult<String> result = jedis.scan(cursor, params);
+                consumer.accept(result.getResult());
+                cursor = result.getCursor();
+            } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+            return true;
+        } catch (Exception e) {
+            plugin.getLogger().error("Error al recorrer claves de Redis:", e);
+            onFailure(e);
+            return false;
+        }
+    }
+
+    /**
+     * Envía varios comandos en un único pipeline
+     */
+    @Override
+    public boolean pipelined(Consumer<RedisBatch> batch) {
+        // Un error en cualquier comando del lote cuenta como fallo del lote completo
+        Object result = execute(jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            PipelineBatch commands = new PipelineBatch(pipeline);
+            batch.accept(commands);
+            pipeline.sync();
+            commands.check();
+            return null;
+        }, p -> {
+            PipelineBatch commands = new PipelineBatch(p);
+            batch.accept(commands);
+            return () -> {
+                commands.check();
+                return null;
+            };
+        }, PIPELINE_FAILED, "Error al ejecutar pipeline en Redis:");
+        return result != PIPELINE_FAILED;
+    }
+
+    JedisPool getJedisPool() {
+        return jedisPool;
+    }
+
+    RedisPipelineMultiplexer getMultiplexer() {
+        return multiplexer;
+    }
+
+    /**
+     * Lote de comandos sobre un pipeline de Jedis
+     */
+    private static final class PipelineBatch implements RedisBatch {
+        private final Pipeline pipeline;
+        private final List<Response<?>> responses = new ArrayList<>();
+
+        private PipelineBatch(Pipeline pipeline) {
+            this.pipeline = pipeline;
+        }
+
+        /**
+         * Tras el sync(): lanza el primer error devuelto por Redis (WRONGTYPE, OOM...),
+         * que de otro modo sólo aparecería al leer cada respuesta
+         */
+        private void check() {
+            for (Response<?> response : responses) {
+                response.get();
+            }
+        }
+
+        @Override
+        public void set(String key, String value) {
+            responses.add(pipeline.set(key, value));
+        }
+
+        @Override
+        public void set(String key, String value, int seconds) {
+            responses.add(pipeline.setex(key, seconds, value));
+        }
+
+        @Override
+        public void del(String key) {
+            responses.add(pipeline.del(key));
+        }
+
+        @Override
+        public void pexpire(String key, long millis) {
+            responses.add(pipeline.pexpire(key, millis));
+        }
+
+        @Override
+        public void hset(String key, String field, String value) {
+            responses.add(pipeline.hset(key, field, value));
+        }
+
+        @Override
+        public void hdel(String key, String... fields) {
+            responses.add(pipeline.hdel(key, fields));
+        }
+
+        @Override
+        public void zadd(String key, double score, String member) {
+            responses.add(pipeline.zadd(key, score, member));
+        }
+
+        @Override
+        public void zincrby(String key, double increment, String member) {
+            responses.add(pipeline.zincrby(key, increment, member));
+        }
+
+        @Override
+        public void zremrangeByScore(String key, double min, double max) {
+            responses.add(pipeline.zremrangeByScore(key, min, max));
+        }
+    }
+}
\ No newline at end of file
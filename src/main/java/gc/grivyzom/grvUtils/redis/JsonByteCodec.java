@@ -0,0 +1,235 @@
+package gc.grivyzom.grvUtils.redis;
+
+import com.google.gson.Gson;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Conversión directa entre objetos y bytes UTF-8 para la ruta caliente de
+ * RedisCache. La serialización escribe en un buffer reutilizable por hilo y la
+ * lectura decodifica sobre el array recibido, sin Strings intermedios. Jedis
+ * necesita arrays de tamaño exacto, así que sólo queda una copia por clave y valor.
+ */
+final class JsonByteCodec {
+
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private static final ThreadLocal<Utf8Writer> WRITERS = ThreadLocal.withInitial(Utf8Writer::new);
+    private static final ThreadLocal<Utf8Reader> READERS = ThreadLocal.withInitial(Utf8Reader::new);
+
+    private JsonByteCodec() {
+    }
+
+    /**
+     * Codifica prefijo + clave en un único array; las claves ASCII no generan
+     * más asignaciones que el propio resultado
+     */
+    static byte[] encodeKey(byte[] prefix, String key) {
+        int length = key.length();
+        byte[] out = new byte[prefix.length + length];
+        System.arraycopy(prefix, 0, out, 0, prefix.length);
+
+        for (int i = 0; i < length; i++) {
+            char c = key.charAt(i);
+            if (c >= 0x80) {
+                byte[] encoded = key.getBytes(StandardCharsets.UTF_8);
+                byte[] slow = Arrays.copyOf(prefix, prefix.length + encoded.length);
+                System.arraycopy(encoded, 0, slow, prefix.length, encoded.length);
+                return slow;
+            }
+            out[prefix.length + i] = (byte) c;
+        }
+        return out;
+    }
+
+    static byte[] toJson(Gson gson, Object src) {
+        Utf8Writer writer = WRITERS.get();
+        writer.reset();
+        gson.toJson(src, writer);
+        return writer.toByteArray();
+    }
+
+    static <T> T fromJson(Gson gson, byte[] json, Type type) {
+        Utf8Reader reader = READERS.get();
+        reader.reset(json);
+        try {
+            return gson.fromJson(reader, type);
+        } finally {
+            reader.reset(null);
+        }
+    }
+
+    /**
+     * Writer que codifica a UTF-8 directamente sobre un array reutilizable
+     */
+    private static final class Utf8Writer extends Writer {
+        private byte[] buffer = new byte[1024];
+        private int count;
+        private char pendingHigh;
+
+        private void reset() {
+            if (buffer.length > MAX_RETAINED_BUFFER) {
+                buffer = new byte[1024];
+            }
+            count = 0;
+            pendingHigh = 0;
+        }
+
+        private byte[] toByteArray() {
+            if (pendingHigh != 0) {
+                pendingHigh = 0;
+                writeCodePoint('?');
+            }
+            return Arrays.copyOf(buffer, count);
+        }
+
+        @Override
+        public void write(int c) {
+            writeChar((char) c);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                writeChar(cbuf[i]);
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                writeChar(str.charAt(i));
+            }
+        }
+
+        private void writeChar(char c) {
+            if (pendingHigh != 0) {
+                char high = pendingHigh;
+                pendingHigh = 0;
+                if (Character.isLowSurrogate(c)) {
+                    writeCodePoint(Character.toCodePoint(high, c));
+                    return;
+                }
+                writeCodePoint('?');
+            }
+
+            if (Character.isHighSurrogate(c)) {
+                pendingHigh = c;
+            } else if (Character.isLowSurrogate(c)) {
+                writeCodePoint('?');
+            } else {
+                writeCodePoint(c);
+            }
+        }
+
+        private void writeCodePoint(int codePoint) {
+            if (count + 4 > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + 4));
+            }
+
+            if (codePoint < 0x80) {
+                buffer[count++] = (byte) codePoint;
+            } else if (codePoint < 0x800) {
+                buffer[count++] = (byte) (0xC0 | (codePoint >> 6));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (codePoint < 0x10000) {
+                buffer[count++] = (byte) (0xE0 | (codePoint >> 12));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                buffer[count++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Reader que decodifica UTF-8 desde el array recibido de Redis
+     */
+    private static final class Utf8Reader extends Reader {
+        private byte[] data;
+        private int position;
+        private char pendingLow;
+
+        private void reset(byte[] data) {
+            this.data = data;
+            this.position = 0;
+            this.pendingLow = 0;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (data == null || (position >= data.length && pendingLow == 0)) return -1;
+
+            int n = 0;
+            while (n < len) {
+                if (pendingLow != 0) {
+                    cbuf[off + n++] = pendingLow;
+                    pendingLow = 0;
+                    continue;
+                }
+                if (position >= data.length) break;
+
+                int b = data[position++] & 0xFF;
+                if (b < 0x80) {
+                    cbuf[off + n++] = (char) b;
+                    continue;
+                }
+
+                int codePoint;
+                int continuation;
+                if ((b & 0xE0) == 0xC0) {
+                    codePoint = b & 0x1F;
+                    continuation = 1;
+                } else if ((b & 0xF0) == 0xE0) {
+                    codePoint = b & 0x0F;
+                    continuation = 2;
+                } else if ((b & 0xF8) == 0xF0) {
+                    codePoint = b & 0x07;
+                    continuation = 3;
+                } else {
+                    codePoint = 0xFFFD;
+                    continuation = 0;
+                }
+
+                for (int i = 0; i < continuation; i++) {
+                    if (position >= data.length || (data[position] & 0xC0) != 0x80) {
+                        codePoint = 0xFFFD;
+                        break;
+                    }
+                    codePoint = (codePoint << 6) | (data[position++] & 0x3F);
+                }
+
+                if (codePoint > Character.MAX_CODE_POINT) {
+                    codePoint = 0xFFFD;
+                }
+
+                if (codePoint >= 0x10000) {
+                    cbuf[off + n++] = Character.highSurrogate(codePoint);
+                    pendingLow = Character.lowSurrogate(codePoint);
+                } else {
+                    cbuf[off + n++] = (char) codePoint;
+                }
+            }
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
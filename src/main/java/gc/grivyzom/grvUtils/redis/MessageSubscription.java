@@ -0,0 +1,20 @@
+package gc.grivyzom.grvUtils.redis;
+
+/**
+ * Suscripción Pub/Sub cuyos canales pueden cambiar en caliente
+ */
+public interface MessageSubscription {
+
+    /**
+     * Añade canales; si la suscripción ya está activa se envían al momento
+     */
+    void subscribe(String... channels);
+
+    void unsubscribe(String... channels);
+
+    void close();
+
+    boolean isSubscribed(String channel);
+
+    boolean isSharded();
+}
@@ -0,0 +1,280 @@
+package gc.grivyzom.grvUtils.redis;
+
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Núcleo del multiplexor: reparte los comandos entre varias conexiones, cada
+ * una con un hilo escritor que agrupa los pendientes en un único pipeline y
+ * asigna las respuestas en orden. No depende de Jedis; la conexión real la
+ * aporta {@link Link}.
+ *
+ * @param <P> tipo del pipeline sobre el que se encolan los comandos
+ */
+final class PipelineLanes<P> {
+
+    /**
+     * Conexión de una vía. Los métodos se llaman desde su hilo escritor, salvo
+     * close(), que también se usa desde shutdown() para cortar un sync() en curso.
+     */
+    interface Link<P> {
+        P pipeline();
+
+        void sync(P pipeline) throws Exception;
+
+        void ping() throws Exception;
+
+        boolean isConnected();
+
+        void close();
+    }
+
+    private final Logger logger;
+    private final Supplier<Link<P>> linkFactory;
+    private final List<Lane> lanes;
+    private final int maxBatch;
+    private final long healthCheckIntervalMillis;
+    private final long commandTimeoutMillis;
+    private final AtomicInteger nextLane = new AtomicInteger();
+    private volatile boolean running = true;
+
+    PipelineLanes(Logger logger, String name, int connections, int maxBatch, long healthCheckIntervalMillis,
+                  long commandTimeoutMillis, Supplier<Link<P>> linkFactory) {
+        this.logger = logger;
+        this.linkFactory = linkFactory;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.healthCheckIntervalMillis = Math.max(1, healthCheckIntervalMillis);
+        this.commandTimeoutMillis = commandTimeoutMillis;
+
+        this.lanes = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, connections); i++) {
+            Lane lane = new Lane(name + "-" + i);
+            lanes.add(lane);
+            lane.start();
+        }
+    }
+
+    /**
+     * Encola un comando en una de las conexiones
+     */
+    <T> CompletableFuture<T> submit(Function<P, ? extends Supplier<T>> command) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (!running) {
+            future.completeExceptionally(closed());
+            return future;
+        }
+
+        Lane lane = lanes.get(Math.floorMod(nextLane.getAndIncrement(), lanes.size()));
+        lane.queue.offer(new PendingCommand<>(command, future));
+
+        // shutdown() pudo ejecutarse entre la comprobación y el offer: el hilo de
+        // la vía ya no volverá a leer la cola, así que se vacía desde aquí
+        if (!running) {
+            lane.failPending(closed());
+        }
+        return future;
+    }
+
+    /**
+     * Espera la respuesta de un comando ya encolado. Si el hilo se interrumpe,
+     * el comando se abandona y se conserva el estado de interrupción
+     */
+    <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get(commandTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw new TimeoutException("Tiempo de espera agotado para el comando Redis");
+        }
+    }
+
+    void shutdown() {
+        running = false;
+        for (Lane lane : lanes) {
+            lane.interrupt();
+            // interrupt() no desbloquea un hilo esperando en el socket dentro de sync()
+            lane.abort();
+        }
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    int size() {
+        return lanes.size();
+    }
+
+    private static IllegalStateException closed() {
+        return new IllegalStateException("El multiplexor Redis está cerrado");
+    }
+
+    private static final class PendingCommand<P, T> {
+        private final Function<P, ? extends Supplier<T>> command;
+        private final CompletableFuture<T> future;
+        private Supplier<T> response;
+
+        private PendingCommand(Function<P, ? extends Supplier<T>> command, CompletableFuture<T> future) {
+            this.command = command;
+            this.future = future;
+        }
+
+        private void queue(P pipeline) {
+            response = command.apply(pipeline);
+        }
+
+        private boolean isAbandoned() {
+            return future.isDone();
+        }
+
+        private void complete() {
+            try {
+                future.complete(response != null ? response.get() : null);
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        private void fail(Throwable throwable) {
+            future.completeExceptionally(throwable);
+        }
+    }
+
+    /**
+     * Conexión con su propio hilo escritor
+     */
+    private final class Lane extends Thread {
+        private final BlockingQueue<PendingCommand<P, ?>> queue = new LinkedBlockingQueue<>();
+        private volatile Link<P> link;
+
+        private Lane(String name) {
+            super(name);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<PendingCommand<P, ?>> batch = new ArrayList<>(maxBatch);
+
+            while (running) {
+                try {
+                    PendingCommand<P, ?> first = queue.poll(healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        // Sin tráfico: comprobar la conexión en segundo plano
+                        checkHealth();
+                        continue;
+                    }
+
+                    batch.add(first);
+                    queue.drainTo(batch, maxBatch - 1);
+
+                    // Los comandos cancelados o vencidos no se envían
+                    batch.removeIf(PendingCommand::isAbandoned);
+                    if (!batch.isEmpty()) {
+                        flush(batch);
+                    }
+                } catch (InterruptedException e) {
+                    break;
+                } finally {
+                    batch.clear();
+                }
+            }
+
+            failPending(closed());
+            closeLink();
+        }
+
+        private void flush(List<PendingCommand<P, ?>> batch) {
+            try {
+                Link<P> current = link();
+                P pipeline = current.pipeline();
+                for (PendingCommand<P, ?> pending : batch) {
+                    pending.queue(pipeline);
+                }
+                current.sync(pipeline);
+            } catch (Exception e) {
+                // Error de conexión: descartar la conexión y fallar el lote completo
+                closeLink();
+                for (PendingCommand<P, ?> pending : batch) {
+                    pending.fail(e);
+                }
+                return;
+            }
+
+            for (PendingCommand<P, ?> pending : batch) {
+                pending.complete();
+            }
+        }
+
+        private void checkHealth() {
+            Link<P> current = link;
+            if (current == null) return;
+
+            try {
+                current.ping();
+            } catch (Exception e) {
+                logger.warn("§e⚠ §fConexión Redis compartida caída, se reconectará: " + e.getMessage());
+                closeLink();
+            }
+        }
+
+        private Link<P> link() {
+            Link<P> current = link;
+            if (current == null || !current.isConnected()) {
+                closeLink();
+                current = linkFactory.get();
+                link = current;
+            }
+            return current;
+        }
+
+        private void closeLink() {
+            Link<P> current = link;
+            if (current != null) {
+                try {
+                    current.close();
+                } catch (Exception ignored) {
+                }
+                link = null;
+            }
+        }
+
+        /**
+         * Cierra la conexión desde otro hilo; un sync() en curso falla al momento
+         */
+        private void abort() {
+            Link<P> current = link;
+            if (current != null) {
+                try {
+                    current.close();
+                } catch (Exception ignored) {
+                }
+            }
+        }
+
+        private void failPending(Throwable throwable) {
+            PendingCommand<P, ?> pending;
+            while ((pending = queue.poll()) != null) {
+                pending.fail(throwable);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package gc.grivyzom.grvUtils.redis;
+
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Almacenamiento detrás de {@link RedisManager}: un servidor Redis real o una
+ * implementación en memoria para un único proxy. Los errores se registran y
+ * se devuelve el valor por defecto de cada operación.
+ */
+public interface RedisBackend {
+
+    /**
+     * Empieza a conectar; el futuro se completa cuando el backend está listo
+     */
+    CompletableFuture<Void> connect();
+
+    /**
+     * true si el backend está listo para atender comandos ahora mismo
+     */
+    boolean isConnected();
+
+    /**
+     * Futuro independiente que se completa cuando el backend está listo; si
+     * pierde la conexión, el siguiente futuro pedido espera a que se recupere
+     */
+    CompletableFuture<Void> whenReady();
+
+    void shutdown();
+
+    // Cadenas
+    void set(String key, String value);
+
+    void set(String key, String value, int seconds);
+
+    String get(String key);
+
+    void delete(String key);
+
+    boolean exists(String key);
+
+    void expire(String key, int seconds);
+
+    void set(byte[] key, byte[] value);
+
+    void set(byte[] key, byte[] value, int seconds);
+
+    byte[] getBytes(byte[] key);
+
+    RedisManager.TimedValue getWithTtl(String key);
+
+    List<String> mget(String... keys);
+
+    // Variantes asíncronas
+    CompletableFuture<Void> setAsync(String key, String value);
+
+    CompletableFuture<Void> setAsync(String key, String value, int seconds);
+
+    CompletableFuture<String> getAsync(String key);
+
+    CompletableFuture<List<String>> mgetAsync(String... keys);
+
+    CompletableFuture<Void> deleteAsync(String key);
+
+    CompletableFuture<Boolean> existsAsync(String key);
+
+    CompletableFuture<Void> expireAsync(String key, int seconds);
+
+    CompletableFuture<RedisManager.TimedValue> getWithTtlAsync(String key);
+
+    // Pub/Sub
+    void publish(String channel, String message);
+
+    CompletableFuture<Void> publishAsync(String channel, String message);
+
+    void spublish(String channel, String message);
+
+    CompletableFuture<Void> spublishAsync(String channel, String message);
+
+    MessageSubscription createSubscription(String name, boolean sharded, BiConsumer<String, String> listener);
+
+    // Hashes
+    void hset(String key, String field, String value);
+
+    String hget(String key, String field);
+
+    void hdel(String key, String... fields);
+
+    Map<String, String> hgetAll(String key);
+
+    // Sorted sets
+    Double zincrby(String key, double increment, String member);
+
+    void zadd(String key, double score, String member);
+
+    Long zrevrank(String key, String member);
+
+    Double zscore(String key, String member);
+
+    List<RedisManager.ScoredMember> zrevrangeWithScores(String key, long start, long stop);
+
+    List<String> zrangeByScore(String key, double min, double max);
+
+    void zremrangeByScore(String key, double min, double max);
+
+    void zrem(String key, String... members);
+
+    /**
+     * Aplica de forma atómica un lote de ZADD y ZINCRBY identificado por su número
+     * de secuencia en batchKey; si ya se aplicó ese lote o uno posterior, no se repite
+     * @return true si el lote está aplicado (ahora o en un envío anterior)
+     */
+    boolean applyScoreBatch(String key, String batchKey, long sequence, Map<String, Double> scores,
+                            Map<String, Double> increments, long batchTtlMillis);
+
+    // Leases
+    boolean tryAcquireLease(String key, String owner, long ttlMillis);
+
+    boolean renewLease(String key, String owner, long ttlMillis);
+
+    boolean releaseLease(String key, String owner);
+
+    // Utilidades
+    boolean scan(String pattern, int batchSize, Consumer<List<String>> consumer);
+
+    /**
+     * @return false si el lote no llegó a enviarse (sin conexión o error de red)
+     *         o si algún comando devolvió error; en este caso el resto sí se aplicó
+     */
+    boolean pipelined(Consumer<RedisBatch> batch);
+}
@@ -0,0 +1,26 @@
+package gc.grivyzom.grvUtils.redis;
+
+/**
+ * Comandos que se envían juntos con {@link RedisManager#pipelined}. Con Redis
+ * van en un único pipeline; en memoria se aplican directamente.
+ */
+public interface RedisBatch {
+
+    void set(String key, String value);
+
+    void set(String key, String value, int seconds);
+
+    void del(String key);
+
+    void pexpire(String key, long millis);
+
+    void hset(String key, String field, String value);
+
+    void hdel(String key, String... fields);
+
+    void zadd(String key, double score, String member);
+
+    void zincrby(String key, double increment, String member);
+
+    void zremrangeByScore(String key, double min, double max);
+}
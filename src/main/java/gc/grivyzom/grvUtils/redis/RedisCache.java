@@ -3,203 +3,810 @@ package gc.grivyzom.grvUtils.redis;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import gc.grivyzom.grvUtils.GrvUtils;
+import gc.grivyzom.grvUtils.cache.CacheSnapshot;
+import gc.grivyzom.grvUtils.cache.LocalCache;
+import gc.grivyzom.grvUtils.cache.NegativeLookupFilter;
+import gc.grivyzom.grvUtils.cache.TtlPolicy;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
- * Sistema de caché avanzado usando Redis con soporte para objetos complejos
+ * Sistema de caché avanzado usando Redis con soporte para objetos complejos.
+ * Cada operación tiene una variante asíncrona; para limitar su duración se puede
+ * usar {@link RedisManager#withDeadline} sobre el futuro devuelto.
  */
 public class RedisCache {
 
+    private static final String FILTER_DELTA_MESSAGE = "cache_filter_delta";
+    // TTL explícito de las claves escritas con uno más corto que el de su política
+    private static final String TTL_PREFIX = "grvutils:cache-ttl:";
+
     private final GrvUtils plugin;
     private final RedisManager redisManager;
     private final Gson gson;
     private final String keyPrefix;
+    private final byte[] keyPrefixBytes;
+    private final LocalCache localCache;
+    private final Path snapshotFile;
+    private final Executor decodeExecutor;
+    private final ExecutorService loaderExecutor;
+    private final List<TtlPolicy> policies;
+    private final TtlPolicy defaultPolicy;
+    private final Map<String, CompletableFuture<?>> reloads;
+    private final NegativeLookupFilter negativeFilter;
+    private final double filterVerifyRate;
+    private final Set<String> pendingFilterDeltas;
+    private final List<Consumer<String>> writeListeners;
+    private ScheduledFuture<?> snapshotTask;
+    private ScheduledFuture<?> filterSyncTask;
+    private ScheduledFuture<?> filterRebuildTask;
 
     public RedisCache(GrvUtils plugin) {
         this.plugin = plugin;
         this.redisManager = plugin.getRedisManager();
         this.gson = new Gson();
         this.keyPrefix = "grvutils:cache:";
+        this.keyPrefixBytes = keyPrefix.getBytes(StandardCharsets.UTF_8);
+        this.snapshotFile = plugin.getDataDirectory().resolve("cache-snapshot.bin");
+        this.decodeExecutor = ForkJoinPool.commonPool();
+        this.loaderExecutor = Executors.newFixedThreadPool(
+                Math.max(1, plugin.getConfigManager().getCacheLoaderThreads()));
+        this.policies = plugin.getConfigManager().getCacheTtlPolicies();
+        this.defaultPolicy = new TtlPolicy("*", plugin.getConfigManager().getCacheDefaultTtl(),
+                plugin.getConfigManager().getCacheTtlJitter(), 0, 0);
+        this.reloads = new ConcurrentHashMap<>();
+        this.writeListeners = new CopyOnWriteArrayList<>();
+
+        if (plugin.getConfigManager().isLocalCacheEnabled()) {
+            this.localCache = new LocalCache(
+                    plugin.getConfigManager().getLocalCacheMaxEntries(),
+                    TimeUnit.SECONDS.toMillis(plugin.getConfigManager().getLocalCacheTtl())
+            );
+
+            if (plugin.getConfigManager().isCacheSnapshotEnabled()) {
+                loadSnapshot();
+                long interval = plugin.getConfigManager().getCacheSnapshotInterval();
+                snapshotTask = redisManager.getExecutorService().scheduleAtFixedRate(
+                        this::saveSnapshot, interval, interval, TimeUnit.SECONDS);
+            }
+        } else {
+            this.localCache = null;
+        }
+
+        this.pendingFilterDeltas = ConcurrentHashMap.newKeySet();
+        this.filterVerifyRate = plugin.getConfigManager().getNegativeFilterVerifyRate();
+        if (plugin.getConfigManager().isNegativeFilterEnabled()) {
+            this.negativeFilter = new NegativeLookupFilter(
+                    plugin.getConfigManager().getNegativeFilterExpectedKeys(),
+                    plugin.getConfigManager().getNegativeFilterFalsePositiveRate()
+            );
+            startNegativeFilter();
+        } else {
+            this.negativeFilter = null;
+        }
+    }
+
+    /**
+     * Construye el filtro con SCAN, lo reconstruye periódicamente para olvidar
+     * claves eliminadas y comparte las nuevas claves con el resto de proxies
+     */
+    private void startNegativeFilter() {
+        RedisMessenger messenger = plugin.getRedisMessenger();
+        if (messenger != null) {
+            messenger.registerHandler(FILTER_DELTA_MESSAGE, NegativeLookupFilter.Delta.class,
+                    delta -> negativeFilter.putAll(delta.getKeys()));
+
+            long syncInterval = plugin.getConfigManager().getNegativeFilterSyncInterval();
+            filterSyncTask = redisManager.getExecutorService().scheduleAtFixedRate(
+                    this::publishFilterDeltas, syncInterval, syncInterval, TimeUnit.MILLISECONDS);
+        }
+
+        // Primera construcción en cuanto Redis esté listo
+        redisManager.whenReady().thenRunAsync(this::rebuildNegativeFilter, redisManager.getIoExecutor());
+
+        long rebuildInterval = plugin.getConfigManager().getNegativeFilterRebuildInterval();
+        filterRebuildTask = redisManager.getExecutorService().scheduleAtFixedRate(
+                () -> redisManager.getIoExecutor().execute(this::rebuildNegativeFilter),
+                rebuildInterval, rebuildInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Reconstruye el filtro recorriendo el espacio de claves de la caché
+     */
+    public void rebuildNegativeFilter() {
+        if (negativeFilter == null) return;
+
+        long start = System.currentTimeMillis();
+        long[] count = {0};
+        negativeFilter.beginRebuild();
+
+        boolean completed = redisManager.scan(keyPrefix + "*", 1000, keys -> {
+            for (String rawKey : keys) {
+                negativeFilter.addRebuilt(rawKey.substring(keyPrefix.length()));
+                count[0]++;
+            }
+        });
+
+        if (completed) {
+            negativeFilter.finishRebuild(count[0]);
+            plugin.getLogger().info("§a✓ §fFiltro de claves reconstruido: §e" + count[0] +
+                    " §fclaves en §e" + (System.currentTimeMillis() - start) + "ms");
+        } else {
+            negativeFilter.abortRebuild();
+        }
+    }
+
+    private void publishFilterDeltas() {
+        if (pendingFilterDeltas.isEmpty()) return;
+
+        List<String> keys = new ArrayList<>();
+        for (String key : pendingFilterDeltas) {
+            if (pendingFilterDeltas.remove(key)) keys.add(key);
+        }
+
+        if (!keys.isEmpty()) {
+            plugin.getRedisMessenger().send(FILTER_DELTA_MESSAGE, new NegativeLookupFilter.Delta(keys));
+        }
+    }
+
+    /**
+     * Respuesta del filtro para una clave. Un "no existe" puede ser falso si la
+     * clave se escribió fuera de RedisCache o se perdió el aviso de otro proxy,
+     * así que una fracción (verify-rate) se comprueba igualmente contra Redis.
+     */
+    private FilterCheck checkFilter(String key) {
+        if (negativeFilter == null || negativeFilter.mightContain(key)) return FilterCheck.MAYBE;
+
+        if (filterVerifyRate > 0 && ThreadLocalRandom.current().nextDouble() < filterVerifyRate) {
+            return FilterCheck.VERIFY;
+        }
+        return FilterCheck.ABSENT;
+    }
+
+    /**
+     * Contabiliza el resultado de Redis; si una verificación encuentra la clave,
+     * se añade al filtro para no volver a negarla
+     */
+    private void afterLookup(String key, FilterCheck check, boolean found) {
+        if (negativeFilter == null) return;
+
+        if (check == FilterCheck.VERIFY) {
+            negativeFilter.recordVerification(found);
+            if (found) trackWrite(key);
+        } else if (!found && negativeFilter.isReady()) {
+            negativeFilter.recordPositiveMiss();
+        }
+    }
+
+    private void trackWrite(String key) {
+        if (negativeFilter == null) return;
+
+        negativeFilter.put(key);
+        if (filterSyncTask != null) {
+            pendingFilterDeltas.add(key);
+        }
+    }
+
+    /**
+     * Avisa de cada escritura o eliminación hecha a través de esta caché, con la
+     * clave sin prefijo, para descartar copias locales del valor
+     */
+    public void addWriteListener(Consumer<String> listener) {
+        writeListeners.add(listener);
+    }
+
+    private void notifyWrite(String key) {
+        for (Consumer<String> listener : writeListeners) {
+            try {
+                listener.accept(key);
+            } catch (Exception e) {
+                plugin.getLogger().error("Error al notificar escritura en caché:", e);
+            }
+        }
     }
 
     private String buildKey(String key) {
         return keyPrefix + key;
     }
 
+    private String read(String key) {
+        if (localCache != null) {
+            String cached = localCache.get(key);
+            if (cached != null) return cached;
+        }
+        FilterCheck check = checkFilter(key);
+        if (check == FilterCheck.ABSENT) return null;
+
+        String value = redisManager.get(buildKey(key));
+        afterLookup(key, check, value != null);
+        if (value != null && localCache != null) {
+            localCache.put(key, value, 0);
+        }
+        return value;
+    }
+
+    /**
+     * Serializa directamente a bytes UTF-8 sin pasar por String. Con la caché
+     * local activa se usa la ruta de texto, porque la caché local guarda Strings.
+     */
+    private void writeJson(String key, Object src, int requestedTtl) {
+        // Las políticas con recarga anticipada guardan además el TTL en un pipeline de texto
+        if (localCache != null || policyFor(key).needsTtl()) {
+            write(key, gson.toJson(src), requestedTtl);
+            return;
+        }
+
+        trackWrite(key);
+        notifyWrite(key);
+
+        int ttlSeconds = policyFor(key).physicalTtl(requestedTtl);
+        byte[] rawKey = JsonByteCodec.encodeKey(keyPrefixBytes, key);
+        byte[] json = JsonByteCodec.toJson(gson, src);
+        if (ttlSeconds > 0) {
+            redisManager.set(rawKey, json, ttlSeconds);
+        } else {
+            redisManager.set(rawKey, json);
+        }
+    }
+
+    private <T> T readJson(String key, Type type, String errorMessage) {
+        try {
+            if (localCache != null) {
+                String json = read(key);
+                return json != null ? gson.fromJson(json, type) : null;
+            }
+
+            FilterCheck check = checkFilter(key);
+            if (check == FilterCheck.ABSENT) return null;
+
+            byte[] json = redisManager.getBytes(JsonByteCodec.encodeKey(keyPrefixBytes, key));
+            afterLookup(key, check, json != null);
+            if (json == null) return null;
+            return JsonByteCodec.fromJson(gson, json, type);
+        } catch (Exception e) {
+            plugin.getLogger().error(errorMessage, e);
+            return null;
+        }
+    }
+
+    private TtlPolicy policyFor(String key) {
+        for (TtlPolicy policy : policies) {
+            if (policy.matches(key)) return policy;
+        }
+        return defaultPolicy;
+    }
+
+    /**
+     * Escribe el valor con el TTL de su política; un ttlSeconds explícito sustituye
+     * al TTL base pero conserva el jitter y la ventana de revalidación
+     */
+    private void write(String key, String value, int requestedTtl) {
+        TtlPolicy policy = policyFor(key);
+        int ttlSeconds = policy.physicalTtl(requestedTtl);
+        trackWrite(key);
+        notifyWrite(key);
+        store(key, value, policy, requestedTtl, ttlSeconds);
+
+        if (localCache != null) {
+            localCache.put(key, value, ttlSeconds);
+        }
+    }
+
+    private CompletableFuture<Void> writeAsync(String key, String value, int requestedTtl) {
+        TtlPolicy policy = policyFor(key);
+        int ttlSeconds = policy.physicalTtl(requestedTtl);
+        trackWrite(key);
+        notifyWrite(key);
+        if (localCache != null) {
+            localCache.put(key, value, ttlSeconds);
+        }
+
+        if (policy.needsTtl()) {
+            return CompletableFuture.runAsync(
+                    () -> store(key, value, policy, requestedTtl, ttlSeconds), redisManager.getIoExecutor());
+        }
+        return ttlSeconds > 0
+                ? redisManager.setAsync(buildKey(key), value, ttlSeconds)
+                : redisManager.setAsync(buildKey(key), value);
+    }
+
+    /**
+     * Escribe el valor en Redis. Si la política recarga según el TTL restante y el
+     * TTL pedido es más corto que el suyo, se guarda junto al valor para que
+     * lookup() lo clasifique con el TTL real; si no, se borra el de una escritura anterior.
+     */
+    private void store(String key, String value, TtlPolicy policy, int requestedTtl, int ttlSeconds) {
+        if (!policy.needsTtl()) {
+            if (ttlSeconds > 0) {
+                redisManager.set(buildKey(key), value, ttlSeconds);
+            } else {
+                redisManager.set(buildKey(key), value);
+            }
+            return;
+        }
+
+        int baseTtl = policy.baseTtl(requestedTtl);
+        redisManager.pipelined(batch -> {
+            batch.set(buildKey(key), value, ttlSeconds);
+            if (baseTtl < policy.getTtlSeconds()) {
+                batch.set(ttlKey(key), String.valueOf(baseTtl), ttlSeconds);
+            } else {
+                batch.del(ttlKey(key));
+            }
+        });
+    }
+
+    /**
+     * TTL base con el que se escribió la clave: el explícito guardado junto al
+     * valor o, si no hay, el de la política
+     */
+    private int writtenTtl(String key, TtlPolicy policy) {
+        String stored = redisManager.get(ttlKey(key));
+        Integer ttl = stored != null ? parseOrNull(stored, Integer::parseInt) : null;
+        return ttl != null ? ttl : policy.getTtlSeconds();
+    }
+
+    private String ttlKey(String key) {
+        return TTL_PREFIX + key;
+    }
+
+    /**
+     * Decodifica el resultado fuera del hilo de E/S. Si el futuro devuelto se
+     * cancela o vence su plazo, la lectura pendiente también se cancela.
+     */
+    private <T> CompletableFuture<T> decodeAsync(CompletableFuture<String> source,
+                                                 Function<String, T> decoder, String errorMessage) {
+        CompletableFuture<T> result = source.thenApplyAsync(value -> {
+            if (value == null) return null;
+            try {
+                return decoder.apply(value);
+            } catch (Exception e) {
+                plugin.getLogger().error(errorMessage, e);
+                return null;
+            }
+        }, decodeExecutor);
+
+        result.whenComplete((value, throwable) -> {
+            if (throwable != null) source.cancel(false);
+        });
+        return result;
+    }
+
+    private static <T> T parseOrNull(String value, Function<String, T> parser) {
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Lee un objeto aplicando la política de su clave: si falta se carga con el
+     * loader; si está cerca de expirar o en su ventana stale-while-revalidate se
+     * devuelve el valor actual y se recarga en segundo plano.
+     */
+    public <T> T getOrLoad(String key, Class<T> clazz, Supplier<T> loader) {
+        return getOrLoad(key, (Type) clazz, loader);
+    }
+
+    public <T> T getOrLoad(String key, Type type, Supplier<T> loader) {
+        Hit<T> hit = lookup(key, type, loader);
+        if (hit != null) return hit.value;
+
+        // Fallo de caché: cargar en el hilo llamante, compartiendo la carga si ya está en curso
+        return join(key, loader);
+    }
+
+    /**
+     * Versión asíncrona de getOrLoad. La lectura y el loader se ejecutan en el pool
+     * de loaders de la caché; si ya hay una carga de la clave en curso se espera a
+     * ella sin bloquear ningún hilo.
+     */
+    public <T> CompletableFuture<T> getOrLoadAsync(String key, Class<T> clazz, Supplier<T> loader) {
+        return CompletableFuture.supplyAsync(() -> lookup(key, (Type) clazz, loader), loaderExecutor)
+                .thenCompose(hit -> hit != null
+                        ? CompletableFuture.completedFuture(hit.value)
+                        : loadAsync(key, loader));
+    }
+
+    /**
+     * Lee la clave aplicando su política; null si no está en caché
+     */
+    private <T> Hit<T> lookup(String key, Type type, Supplier<T> loader) {
+        TtlPolicy policy = policyFor(key);
+        String json = null;
+
+        if (localCache != null) {
+            json = localCache.get(key);
+        }
+
+        FilterCheck check = json == null ? checkFilter(key) : FilterCheck.MAYBE;
+        if (json == null && check != FilterCheck.ABSENT) {
+            if (policy.needsTtl()) {
+                RedisManager.TimedValue timed = redisManager.getWithTtl(buildKey(key));
+                if (timed != null && timed.getValue() != null) {
+                    json = timed.getValue();
+                    TtlPolicy.Freshness freshness = policy.classify(timed.getTtlMillis());
+                    // La ventana stale no depende del TTL base; el umbral de recarga sí, y una
+                    // clave escrita con un TTL explícito más corto lo alcanzaría nada más escribirse
+                    if (freshness == TtlPolicy.Freshness.REFRESH) {
+                        freshness = policy.classify(timed.getTtlMillis(), writtenTtl(key, policy));
+                    }
+                    if (freshness != TtlPolicy.Freshness.FRESH) {
+                        reloadInBackground(key, loader);
+                    }
+                }
+            } else {
+                json = redisManager.get(buildKey(key));
+            }
+            afterLookup(key, check, json != null);
+        }
+
+        if (json != null) {
+            try {
+                return new Hit<>(gson.fromJson(json, type));
+            } catch (Exception e) {
+                plugin.getLogger().error("Error al deserializar objeto desde Redis:", e);
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T join(String key, Supplier<T> loader) {
+        CompletableFuture<T> load = new CompletableFuture<>();
+        CompletableFuture<T> inFlight = (CompletableFuture<T>) reloads.putIfAbsent(key, load);
+        if (inFlight != null) {
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                return loader.get();
+            }
+        }
+        return runLoad(key, loader, load);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> loadAsync(String key, Supplier<T> loader) {
+        CompletableFuture<T> load = new CompletableFuture<>();
+        CompletableFuture<T> inFlight = (CompletableFuture<T>) reloads.putIfAbsent(key, load);
+        if (inFlight != null) {
+            return inFlight.exceptionallyCompose(e -> CompletableFuture.supplyAsync(loader, loaderExecutor));
+        }
+
+        // Ya estamos en un hilo de loaders: la carga se ejecuta aquí mismo
+        try {
+            runLoad(key, loader, load);
+        } catch (RuntimeException ignored) {
+            // El error queda en el futuro
+        }
+        return load;
+    }
+
+    private <T> T runLoad(String key, Supplier<T> loader, CompletableFuture<T> load) {
+        try {
+            T value = loader.get();
+            if (value != null) {
+                write(key, gson.toJson(value), 0);
+            }
+            load.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            reloads.remove(key, load);
+        }
+    }
+
+    private <T> void reloadInBackground(String key, Supplier<T> loader) {
+        CompletableFuture<T> reload = new CompletableFuture<>();
+        if (reloads.putIfAbsent(key, reload) != null) return;
+
+        loaderExecutor.execute(() -> {
+            try {
+                runLoad(key, loader, reload);
+            } catch (Exception e) {
+                plugin.getLogger().error("Error al recargar la clave de caché " + key + ":", e);
+            }
+        });
+    }
+
+    private void loadSnapshot() {
+        try {
+            long start = System.nanoTime();
+            CacheSnapshot snapshot = CacheSnapshot.load(snapshotFile);
+            if (snapshot == null) return;
+
+            localCache.attachSnapshot(snapshot);
+            plugin.getLogger().info("§a✓ §fSnapshot de caché mapeado: §e" + snapshot.pendingCount() +
+                    " §fentradas en §e" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+        } catch (IOException e) {
+            plugin.getLogger().error("Error al cargar el snapshot de caché:", e);
+        }
+    }
+
+    /**
+     * Persiste la caché local en disco para acelerar el siguiente arranque
+     */
+    public void saveSnapshot() {
+        if (localCache == null) return;
+
+        try {
+            int written = CacheSnapshot.write(snapshotFile, localCache);
+            if (plugin.getConfigManager().isDebugEnabled()) {
+                plugin.getLogger().info("§7[DEBUG] §fSnapshot de caché guardado: §e" + written + " §fentradas");
+            }
+        } catch (IOException e) {
+            plugin.getLogger().error("Error al guardar el snapshot de caché:", e);
+        }
+    }
+
+    public void shutdown() {
+        if (filterRebuildTask != null) {
+            filterRebuildTask.cancel(false);
+        }
+        if (filterSyncTask != null) {
+            filterSyncTask.cancel(false);
+            publishFilterDeltas();
+        }
+
+        if (snapshotTask != null) {
+            snapshotTask.cancel(false);
+            saveSnapshot();
+        }
+
+        loaderExecutor.shutdown();
+    }
+
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    public LocalCache getLocalCache() {
+        return localCache;
+    }
+
+    public NegativeLookupFilter getNegativeFilter() {
+        return negativeFilter;
+    }
+
     // Métodos para String
     public void set(String key, String value) {
-        redisManager.set(buildKey(key), value);
+        write(key, value, 0);
     }
 
     public void set(String key, String value, int ttlSeconds) {
-        redisManager.set(buildKey(key), value, ttlSeconds);
+        write(key, value, ttlSeconds);
     }
 
     public String getString(String key) {
-        return redisManager.get(buildKey(key));
+        return read(key);
+    }
+
+    public CompletableFuture<Void> setAsync(String key, String value) {
+        return writeAsync(key, value, 0);
+    }
+
+    public CompletableFuture<Void> setAsync(String key, String value, int ttlSeconds) {
+        return writeAsync(key, value, ttlSeconds);
     }
 
     public CompletableFuture<String> getStringAsync(String key) {
-        return redisManager.getAsync(buildKey(key));
+        if (localCache != null) {
+            String cached = localCache.get(key);
+            if (cached != null) return CompletableFuture.completedFuture(cached);
+        }
+        FilterCheck check = checkFilter(key);
+        if (check == FilterCheck.ABSENT) return CompletableFuture.completedFuture(null);
+
+        CompletableFuture<String> future = redisManager.getAsync(buildKey(key));
+        future.whenComplete((value, throwable) -> {
+            if (throwable == null) afterLookup(key, check, value != null);
+        });
+        return future;
     }
 
     // Métodos para objetos (usando JSON)
     public <T> void setObject(String key, T object) {
-        String json = gson.toJson(object);
-        redisManager.set(buildKey(key), json);
+        writeJson(key, object, 0);
     }
 
     public <T> void setObject(String key, T object, int ttlSeconds) {
-        String json = gson.toJson(object);
-        redisManager.set(buildKey(key), json, ttlSeconds);
+        writeJson(key, object, ttlSeconds);
     }
 
     public <T> T getObject(String key, Class<T> clazz) {
-        String json = redisManager.get(buildKey(key));
-        if (json == null) return null;
-
-        try {
-            return gson.fromJson(json, clazz);
-        } catch (Exception e) {
-            plugin.getLogger().error("Error al deserializar objeto desde Redis:", e);
-            return null;
-        }
+        return readJson(key, clazz, "Error al deserializar objeto desde Redis:");
     }
 
     public <T> T getObject(String key, Type type) {
-        String json = redisManager.get(buildKey(key));
-        if (json == null) return null;
+        return readJson(key, type, "Error al deserializar objeto desde Redis:");
+    }
 
-        try {
-            return gson.fromJson(json, type);
-        } catch (Exception e) {
-            plugin.getLogger().error("Error al deserializar objeto desde Redis:", e);
-            return null;
-        }
+    public <T> CompletableFuture<Void> setObjectAsync(String key, T object) {
+        return writeAsync(key, gson.toJson(object), 0);
+    }
+
+    public <T> CompletableFuture<Void> setObjectAsync(String key, T object, int ttlSeconds) {
+        return writeAsync(key, gson.toJson(object), ttlSeconds);
     }
 
     public <T> CompletableFuture<T> getObjectAsync(String key, Class<T> clazz) {
-        return redisManager.getAsync(buildKey(key))
-                .thenApply(json -> {
-                    if (json == null) return null;
-                    try {
-                        return gson.fromJson(json, clazz);
-                    } catch (Exception e) {
-                        plugin.getLogger().error("Error al deserializar objeto desde Redis:", e);
-                        return null;
-                    }
-                });
+        return decodeAsync(getStringAsync(key), json -> gson.fromJson(json, clazz),
+                "Error al deserializar objeto desde Redis:");
+    }
+
+    public <T> CompletableFuture<T> getObjectAsync(String key, Type type) {
+        return decodeAsync(getStringAsync(key), json -> gson.<T>fromJson(json, type),
+                "Error al deserializar objeto desde Redis:");
     }
 
     // Métodos para listas
     public <T> void setList(String key, List<T> list) {
-        String json = gson.toJson(list);
-        redisManager.set(buildKey(key), json);
+        writeJson(key, list, 0);
     }
 
     public <T> void setList(String key, List<T> list, int ttlSeconds) {
-        String json = gson.toJson(list);
-        redisManager.set(buildKey(key), json, ttlSeconds);
+        writeJson(key, list, ttlSeconds);
     }
 
     public <T> List<T> getList(String key, Class<T> elementClass) {
-        String json = redisManager.get(buildKey(key));
-        if (json == null) return null;
+        Type listType = TypeToken.getParameterized(List.class, elementClass).getType();
+        return readJson(key, listType, "Error al deserializar lista desde Redis:");
+    }
 
-        try {
-            Type listType = TypeToken.getParameterized(List.class, elementClass).getType();
-            return gson.fromJson(json, listType);
-        } catch (Exception e) {
-            plugin.getLogger().error("Error al deserializar lista desde Redis:", e);
-            return null;
-        }
+    public <T> CompletableFuture<Void> setListAsync(String key, List<T> list) {
+        return writeAsync(key, gson.toJson(list), 0);
+    }
+
+    public <T> CompletableFuture<Void> setListAsync(String key, List<T> list, int ttlSeconds) {
+        return writeAsync(key, gson.toJson(list), ttlSeconds);
+    }
+
+    public <T> CompletableFuture<List<T>> getListAsync(String key, Class<T> elementClass) {
+        Type listType = TypeToken.getParameterized(List.class, elementClass).getType();
+        return decodeAsync(getStringAsync(key), json -> gson.<List<T>>fromJson(json, listType),
+                "Error al deserializar lista desde Redis:");
     }
 
     // Métodos para mapas
     public <K, V> void setMap(String key, Map<K, V> map) {
-        String json = gson.toJson(map);
-        redisManager.set(buildKey(key), json);
+        writeJson(key, map, 0);
     }
 
     public <K, V> void setMap(String key, Map<K, V> map, int ttlSeconds) {
-        String json = gson.toJson(map);
-        redisManager.set(buildKey(key), json, ttlSeconds);
+        writeJson(key, map, ttlSeconds);
     }
 
     public <K, V> Map<K, V> getMap(String key, Class<K> keyClass, Class<V> valueClass) {
-        String json = redisManager.get(buildKey(key));
-        if (json == null) return null;
+        Type mapType = TypeToken.getParameterized(Map.class, keyClass, valueClass).getType();
+        return readJson(key, mapType, "Error al deserializar mapa desde Redis:");
+    }
 
-        try {
-            Type mapType = TypeToken.getParameterized(Map.class, keyClass, valueClass).getType();
-            return gson.fromJson(json, mapType);
-        } catch (Exception e) {
-            plugin.getLogger().error("Error al deserializar mapa desde Redis:", e);
-            return null;
-        }
+    public <K, V> CompletableFuture<Void> setMapAsync(String key, Map<K, V> map) {
+        return writeAsync(key, gson.toJson(map), 0);
+    }
+
+    public <K, V> CompletableFuture<Void> setMapAsync(String key, Map<K, V> map, int ttlSeconds) {
+        return writeAsync(key, gson.toJson(map), ttlSeconds);
+    }
+
+    public <K, V> CompletableFuture<Map<K, V>> getMapAsync(String key, Class<K> keyClass, Class<V> valueClass) {
+        Type mapType = TypeToken.getParameterized(Map.class, keyClass, valueClass).getType();
+        return decodeAsync(getStringAsync(key), json -> gson.<Map<K, V>>fromJson(json, mapType),
+                "Error al deserializar mapa desde Redis:");
     }
 
     // Métodos para sets
     public <T> void setSet(String key, Set<T> set) {
-        String json = gson.toJson(set);
-        redisManager.set(buildKey(key), json);
+        writeJson(key, set, 0);
     }
 
     public <T> void setSet(String key, Set<T> set, int ttlSeconds) {
-        String json = gson.toJson(set);
-        redisManager.set(buildKey(key), json, ttlSeconds);
+        writeJson(key, set, ttlSeconds);
     }
 
     public <T> Set<T> getSet(String key, Class<T> elementClass) {
-        String json = redisManager.get(buildKey(key));
-        if (json == null) return null;
+        Type setType = TypeToken.getParameterized(Set.class, elementClass).getType();
+        return readJson(key, setType, "Error al deserializar set desde Redis:");
+    }
 
-        try {
-            Type setType = TypeToken.getParameterized(Set.class, elementClass).getType();
-            return gson.fromJson(json, setType);
-        } catch (Exception e) {
-            plugin.getLogger().error("Error al deserializar set desde Redis:", e);
-            return null;
-        }
+    public <T> CompletableFuture<Void> setSetAsync(String key, Set<T> set) {
+        return writeAsync(key, gson.toJson(set), 0);
+    }
+
+    public <T> CompletableFuture<Void> setSetAsync(String key, Set<T> set, int ttlSeconds) {
+        return writeAsync(key, gson.toJson(set), ttlSeconds);
+    }
+
+    public <T> CompletableFuture<Set<T>> getSetAsync(String key, Class<T> elementClass) {
+        Type setType = TypeToken.getParameterized(Set.class, elementClass).getType();
+        return decodeAsync(getStringAsync(key), json -> gson.<Set<T>>fromJson(json, setType),
+                "Error al deserializar set desde Redis:");
     }
 
     // Métodos generales
     public boolean exists(String key) {
-        return redisManager.exists(buildKey(key));
+        if (localCache != null && localCache.get(key) != null) return true;
+        FilterCheck check = checkFilter(key);
+        if (check == FilterCheck.ABSENT) return false;
+
+        boolean exists = redisManager.exists(buildKey(key));
+        afterLookup(key, check, exists);
+        return exists;
     }
 
     public CompletableFuture<Boolean> existsAsync(String key) {
-        return redisManager.existsAsync(buildKey(key));
+        if (localCache != null && localCache.get(key) != null) {
+            return CompletableFuture.completedFuture(true);
+        }
+        FilterCheck check = checkFilter(key);
+        if (check == FilterCheck.ABSENT) return CompletableFuture.completedFuture(false);
+
+        CompletableFuture<Boolean> future = redisManager.existsAsync(buildKey(key));
+        future.whenComplete((exists, throwable) -> {
+            if (throwable == null) afterLookup(key, check, Boolean.TRUE.equals(exists));
+        });
+        return future;
     }
 
     public void delete(String key) {
+        if (localCache != null) localCache.remove(key);
+        notifyWrite(key);
         redisManager.delete(buildKey(key));
     }
 
     public CompletableFuture<Void> deleteAsync(String key) {
+        if (localCache != null) localCache.remove(key);
+        notifyWrite(key);
         return redisManager.deleteAsync(buildKey(key));
     }
 
     public void expire(String key, int seconds) {
+        if (localCache != null) localCache.expire(key, seconds);
+        if (seconds <= 0) notifyWrite(key);
         redisManager.expire(buildKey(key), seconds);
     }
 
+    public CompletableFuture<Void> expireAsync(String key, int seconds) {
+        if (localCache != null) localCache.expire(key, seconds);
+        if (seconds <= 0) notifyWrite(key);
+        return redisManager.expireAsync(buildKey(key), seconds);
+    }
+
     // Métodos de conveniencia para tipos primitivos
     public void setInt(String key, int value) {
-        redisManager.set(buildKey(key), String.valueOf(value));
+        write(key, String.valueOf(value), 0);
     }
 
     public void setInt(String key, int value, int ttlSeconds) {
-        redisManager.set(buildKey(key), String.valueOf(value), ttlSeconds);
+        write(key, String.valueOf(value), ttlSeconds);
     }
 
     public Integer getInt(String key) {
-        String value = redisManager.get(buildKey(key));
+        String value = read(key);
         if (value == null) return null;
 
         try {
@@ -209,16 +816,29 @@ public class RedisCache {
         }
     }
 
+    public CompletableFuture<Void> setIntAsync(String key, int value) {
+        return writeAsync(key, String.valueOf(value), 0);
+    }
+
+    public CompletableFuture<Void> setIntAsync(String key, int value, int ttlSeconds) {
+        return writeAsync(key, String.valueOf(value), ttlSeconds);
+    }
+
+    public CompletableFuture<Integer> getIntAsync(String key) {
+        return decodeAsync(getStringAsync(key), value -> parseOrNull(value, Integer::parseInt),
+                "Error al leer valor desde Redis:");
+    }
+
     public void setLong(String key, long value) {
-        redisManager.set(buildKey(key), String.valueOf(value));
+        write(key, String.valueOf(value), 0);
     }
 
     public void setLong(String key, long value, int ttlSeconds) {
-        redisManager.set(buildKey(key), String.valueOf(value), ttlSeconds);
+        write(key, String.valueOf(value), ttlSeconds);
     }
 
     public Long getLong(String key) {
-        String value = redisManager.get(buildKey(key));
+        String value = read(key);
         if (value == null) return null;
 
         try {
@@ -228,31 +848,57 @@ public class RedisCache {
         }
     }
 
+    public CompletableFuture<Void> setLongAsync(String key, long value) {
+        return writeAsync(key, String.valueOf(value), 0);
+    }
+
+    public CompletableFuture<Void> setLongAsync(String key, long value, int ttlSeconds) {
+        return writeAsync(key, String.valueOf(value), ttlSeconds);
+    }
+
+    public CompletableFuture<Long> getLongAsync(String key) {
+        return decodeAsync(getStringAsync(key), value -> parseOrNull(value, Long::parseLong),
+                "Error al leer valor desde Redis:");
+    }
+
     public void setBoolean(String key, boolean value) {
-        redisManager.set(buildKey(key), String.valueOf(value));
+        write(key, String.valueOf(value), 0);
     }
 
     public void setBoolean(String key, boolean value, int ttlSeconds) {
-        redisManager.set(buildKey(key), String.valueOf(value), ttlSeconds);
+        write(key, String.valueOf(value), ttlSeconds);
     }
 
     public Boolean getBoolean(String key) {
-        String value = redisManager.get(buildKey(key));
+        String value = read(key);
         if (value == null) return null;
 
         return Boolean.parseBoolean(value);
     }
 
+    public CompletableFuture<Void> setBooleanAsync(String key, boolean value) {
+        return writeAsync(key, String.valueOf(value), 0);
+    }
+
+    public CompletableFuture<Void> setBooleanAsync(String key, boolean value, int ttlSeconds) {
+        return writeAsync(key, String.valueOf(value), ttlSeconds);
+    }
+
+    public CompletableFuture<Boolean> getBooleanAsync(String key) {
+        return decodeAsync(getStringAsync(key), value -> parseOrNull(value, Boolean::parseBoolean),
+                "Error al leer valor desde Redis:");
+    }
+
     public void setDouble(String key, double value) {
-        redisManager.set(buildKey(key), String.valueOf(value));
+        write(key, String.valueOf(value), 0);
     }
 
     public void setDouble(String key, double value, int ttlSeconds) {
-        redisManager.set(buildKey(key), String.valueOf(value), ttlSeconds);
+        write(key, String.valueOf(value), ttlSeconds);
     }
 
     public Double getDouble(String key) {
-        String value = redisManager.get(buildKey(key));
+        String value = read(key);
         if (value == null) return null;
 
         try {
@@ -261,4 +907,37 @@ public class RedisCache {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    public CompletableFuture<Void> setDoubleAsync(String key, double value) {
+        return writeAsync(key, String.valueOf(value), 0);
+    }
+
+    public CompletableFuture<Void> setDoubleAsync(String key, double value, int ttlSeconds) {
+        return writeAsync(key, String.valueOf(value), ttlSeconds);
+    }
+
+    public CompletableFuture<Double> getDoubleAsync(String key) {
+        return decodeAsync(getStringAsync(key), value -> parseOrNull(value, Double::parseDouble),
+                "Error al leer valor desde Redis:");
+    }
+
+    private enum FilterCheck {
+        /** El filtro no descarta la clave */
+        MAYBE,
+        /** El filtro garantiza que no existe */
+        ABSENT,
+        /** El filtro dice que no existe, pero se comprueba en Redis */
+        VERIFY
+    }
+
+    /**
+     * Valor encontrado en caché, que puede ser null si así se guardó
+     */
+    private static final class Hit<T> {
+        private final T value;
+
+        private Hit(T value) {
+            this.value = value;
+        }
+    }
+}
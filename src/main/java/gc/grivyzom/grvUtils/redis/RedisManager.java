@@ -1,258 +1,405 @@
 package gc.grivyzom.grvUtils.redis;
 
 import gc.grivyzom.grvUtils.GrvUtils;
+import gc.grivyzom.grvUtils.redis.memory.InMemoryBackend;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
-import redis.clients.jedis.JedisPoolConfig;
 import redis.clients.jedis.JedisPubSub;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Punto de acceso a Redis del plugin. Las operaciones se delegan en un
+ * {@link RedisBackend}: un servidor Redis real o, con redis.enabled en false,
+ * un almacenamiento en memoria con la misma API para un único proxy.
+ */
 public class RedisManager {
 
     private final GrvUtils plugin;
-    private JedisPool jedisPool;
-    private ScheduledExecutorService executorService;
-    private boolean connected = false;
+    private final ScheduledExecutorService executorService;
+    private final ExecutorService ioExecutor;
+    private final RedisBackend backend;
 
     public RedisManager(GrvUtils plugin) {
         this.plugin = plugin;
         this.executorService = Executors.newScheduledThreadPool(2);
-    }
-
-    public void initialize() {
-        if (!plugin.getConfigManager().isRedisEnabled()) {
-            plugin.getLogger().info("§7⚠ §fRedis está deshabilitado en la configuración");
-            return;
+        this.ioExecutor = Executors.newFixedThreadPool(
+                Math.max(1, plugin.getConfigManager().getRedisAsyncThreads()));
+
+        if (plugin.getConfigManager().isRedisEnabled()) {
+            this.backend = new JedisBackend(plugin, executorService, ioExecutor);
+        } else {
+            this.backend = new InMemoryBackend(plugin.getLogger(), executorService,
+                    plugin.getConfigManager().getRedisMemoryTimerTick());
         }
+    }
 
-        try {
-            // Configurar pool de conexiones
-            JedisPoolConfig poolConfig = new JedisPoolConfig();
-            poolConfig.setMaxTotal(plugin.getConfigManager().getRedisPoolMaxTotal());
-            poolConfig.setMaxIdle(plugin.getConfigManager().getRedisPoolMaxIdle());
-            poolConfig.setMinIdle(plugin.getConfigManager().getRedisPoolMinIdle());
-            poolConfig.setTestOnBorrow(true);
-            poolConfig.setTestOnReturn(true);
-            poolConfig.setTestWhileIdle(true);
-            poolConfig.setMinEvictableIdleTimeMillis(Duration.ofSeconds(60).toMillis());
-            poolConfig.setTimeBetweenEvictionRunsMillis(Duration.ofSeconds(30).toMillis());
-            poolConfig.setNumTestsPerEvictionRun(3);
-            poolConfig.setBlockWhenExhausted(true);
-
-            // Crear pool
-            String password = plugin.getConfigManager().getRedisPassword();
-            if (password.isEmpty()) {
-                jedisPool = new JedisPool(
-                        poolConfig,
-                        plugin.getConfigManager().getRedisHost(),
-                        plugin.getConfigManager().getRedisPort(),
-                        plugin.getConfigManager().getRedisTimeout(),
-                        null,
-                        plugin.getConfigManager().getRedisDatabase()
-                );
-            } else {
-                jedisPool = new JedisPool(
-                        poolConfig,
-                        plugin.getConfigManager().getRedisHost(),
-                        plugin.getConfigManager().getRedisPort(),
-                        plugin.getConfigManager().getRedisTimeout(),
-                        password,
-                        plugin.getConfigManager().getRedisDatabase()
-                );
-            }
-
-            // Probar conexión
-            testConnection();
-            connected = true;
-
-            plugin.getLogger().info("§a✓ §fRedis conectado correctamente");
-            plugin.getLogger().info("§b▶ §fHost: §e" + plugin.getConfigManager().getRedisHost() + ":" + plugin.getConfigManager().getRedisPort());
-            plugin.getLogger().info("§b▶ §fBase de datos: §e" + plugin.getConfigManager().getRedisDatabase());
-
-        } catch (Exception e) {
-            plugin.getLogger().error("§c✗ §fError al conectar con Redis:", e);
-            connected = false;
-        }
+    /**
+     * Usa un backend concreto, por ejemplo {@link InMemoryBackend} en pruebas.
+     * Los ejecutores deben ser los mismos que usa el backend; shutdown() los cierra.
+     */
+    public RedisManager(GrvUtils plugin, RedisBackend backend,
+                        ScheduledExecutorService executorService, ExecutorService ioExecutor) {
+        this.plugin = plugin;
+        this.executorService = executorService;
+        this.ioExecutor = ioExecutor;
+        this.backend = backend;
     }
 
-    private void testConnection() throws Exception {
-        try (Jedis jedis = jedisPool.getResource()) {
-            String response = jedis.ping();
-            if (!"PONG".equals(response)) {
-                throw new Exception("Respuesta inesperada del ping: " + response);
-            }
+    /**
+     * Conecta en segundo plano sin bloquear el arranque del proxy
+     * @return futuro que se completa cuando el backend está listo
+     */
+    public CompletableFuture<Void> initialize() {
+        if (backend instanceof InMemoryBackend) {
+            plugin.getLogger().warn("§e⚠ §fRedis está deshabilitado: usando almacenamiento en memoria (un solo proxy)");
         }
+        return backend.connect();
     }
 
     public void shutdown() {
-        if (jedisPool != null && !jedisPool.isClosed()) {
-            jedisPool.close();
-        }
+        backend.shutdown();
 
-        if (executorService != null && !executorService.isShutdown()) {
+        if (!executorService.isShutdown()) {
             executorService.shutdown();
         }
 
-        connected = false;
+        if (!ioExecutor.isShutdown()) {
+            ioExecutor.shutdown();
+        }
     }
 
     public boolean isConnected() {
-        return connected && jedisPool != null && !jedisPool.isClosed();
+        return backend.isConnected();
+    }
+
+    /**
+     * Futuro que se completa al quedar el backend listo, o falla si se agotan
+     * los reintentos o el plugin se apaga
+     */
+    public CompletableFuture<Void> whenReady() {
+        return backend.whenReady();
     }
 
     // Métodos síncronos
     public void set(String key, String value) {
-        if (!isConnected()) return;
-
-        try (Jedis jedis = jedisPool.getResource()) {
-            jedis.set(key, value);
-        } catch (Exception e) {
-            plugin.getLogger().error("Error al establecer valor en Redis:", e);
-        }
+        backend.set(key, value);
     }
 
     public void set(String key, String value, int seconds) {
-        if (!isConnected()) return;
-
-        try (Jedis jedis = jedisPool.getResource()) {
-            jedis.setex(key, seconds, value);
-        } catch (Exception e) {
-            plugin.getLogger().error("Error al establecer valor con expiración en Redis:", e);
-        }
+        backend.set(key, value, seconds);
     }
 
     public String get(String key) {
-        if (!isConnected()) return null;
-
-        try (Jedis jedis = jedisPool.getResource()) {
-            return jedis.get(key);
-        } catch (Exception e) {
-            plugin.getLogger().error("Error al obtener valor de Redis:", e);
-            return null;
-        }
+        return backend.get(key);
     }
 
     public void delete(String key) {
-        if (!isConnected()) return;
-
-        try (Jedis jedis = jedisPool.getResource()) {
-            jedis.del(key);
-        } catch (Exception e) {
-            plugin.getLogger().error("Error al eliminar clave de Redis:", e);
-        }
+        backend.delete(key);
     }
 
     public boolean exists(String key) {
-        if (!isConnected()) return false;
-
-        try (Jedis jedis = jedisPool.getResource()) {
-            return jedis.exists(key);
-        } catch (Exception e) {
-            plugin.getLogger().error("Error al verificar existencia de clave en Redis:", e);
-            return false;
-        }
+        return backend.exists(key);
     }
 
     public void expire(String key, int seconds) {
-        if (!isConnected()) return;
+        backend.expire(key, seconds);
+    }
 
-        try (Jedis jedis = jedisPool.getResource()) {
-            jedis.expire(key, seconds);
-        } catch (Exception e) {
-            plugin.getLogger().error("Error al establecer expiración en Redis:", e);
-        }
+    // Variantes binarias: la clave y el valor ya vienen codificados
+    public void set(byte[] key, byte[] value) {
+        backend.set(key, value);
+    }
+
+    public void set(byte[] key, byte[] value, int seconds) {
+        backend.set(key, value, seconds);
+    }
+
+    public byte[] getBytes(byte[] key) {
+        return backend.getBytes(key);
+    }
+
+    /**
+     * Obtiene un valor junto a su TTL restante
+     */
+    public TimedValue getWithTtl(String key) {
+        return backend.getWithTtl(key);
+    }
+
+    public CompletableFuture<TimedValue> getWithTtlAsync(String key) {
+        return backend.getWithTtlAsync(key);
+    }
+
+    public List<String> mget(String... keys) {
+        return backend.mget(keys);
+    }
+
+    /**
+     * Aplica un plazo máximo a una operación asíncrona. Al vencer, el futuro falla
+     * con TimeoutException y la operación pendiente se descarta.
+     */
+    public static <T> CompletableFuture<T> withDeadline(CompletableFuture<T> future, Duration deadline) {
+        long millis = deadline.toMillis();
+        return millis > 0 ? future.orTimeout(millis, TimeUnit.MILLISECONDS) : future;
     }
 
     // Métodos asíncronos
     public CompletableFuture<Void> setAsync(String key, String value) {
-        return CompletableFuture.runAsync(() -> set(key, value), executorService);
+        return backend.setAsync(key, value);
     }
 
     public CompletableFuture<Void> setAsync(String key, String value, int seconds) {
-        return CompletableFuture.runAsync(() -> set(key, value, seconds), executorService);
+        return backend.setAsync(key, value, seconds);
     }
 
     public CompletableFuture<String> getAsync(String key) {
-        return CompletableFuture.supplyAsync(() -> get(key), executorService);
+        return backend.getAsync(key);
+    }
+
+    public CompletableFuture<List<String>> mgetAsync(String... keys) {
+        return backend.mgetAsync(keys);
     }
 
     public CompletableFuture<Void> deleteAsync(String key) {
-        return CompletableFuture.runAsync(() -> delete(key), executorService);
+        return backend.deleteAsync(key);
     }
 
     public CompletableFuture<Boolean> existsAsync(String key) {
-        return CompletableFuture.supplyAsync(() -> exists(key), executorService);
+        return backend.existsAsync(key);
+    }
+
+    public CompletableFuture<Void> expireAsync(String key, int seconds) {
+        return backend.expireAsync(key, seconds);
     }
 
     // Pub/Sub
     public void publish(String channel, String message) {
-        if (!isConnected()) return;
-
-        try (Jedis jedis = jedisPool.getResource()) {
-            jedis.publish(channel, message);
-        } catch (Exception e) {
-            plugin.getLogger().error("Error al publicar mensaje en Redis:", e);
-        }
+        backend.publish(channel, message);
     }
 
     public CompletableFuture<Void> publishAsync(String channel, String message) {
-        return CompletableFuture.runAsync(() -> publish(channel, message), executorService);
+        return backend.publishAsync(channel, message);
+    }
+
+    /**
+     * Publica en un canal sharded (SPUBLISH, Redis 7+)
+     */
+    public void spublish(String channel, String message) {
+        backend.spublish(channel, message);
+    }
+
+    public CompletableFuture<Void> spublishAsync(String channel, String message) {
+        return backend.spublishAsync(channel, message);
     }
 
+    /**
+     * Crea una suscripción cuyos canales se pueden añadir y quitar en caliente
+     */
+    public MessageSubscription createSubscription(String name, boolean sharded, BiConsumer<String, String> listener) {
+        return backend.createSubscription(name, sharded, listener);
+    }
+
+    /**
+     * Crea una suscripción a los canales indicados y la devuelve para poder
+     * añadir o quitar canales y cerrarla
+     */
+    public MessageSubscription subscribe(String name, BiConsumer<String, String> listener, String... channels) {
+        MessageSubscription subscription = backend.createSubscription(name, false, listener);
+        subscription.subscribe(channels);
+        return subscription;
+    }
+
+    /**
+     * Suscribe un JedisPubSub propio en un hilo dedicado. Jedis lo controla
+     * directamente, así que recibe todos sus eventos y pubSub.unsubscribe() la
+     * termina. Sin conexión, o con el backend en memoria, no hace nada.
+     * @deprecated usar {@link #subscribe(String, BiConsumer, String...)}, que
+     *             además se recupera de las desconexiones
+     */
+    @Deprecated
     public void subscribe(JedisPubSub pubSub, String... channels) {
+        JedisPool pool = getJedisPool();
+        if (pool == null) {
+            plugin.getLogger().warn("§e⚠ §fsubscribe(JedisPubSub) requiere Redis; usa subscribe(name, listener, channels)");
+            return;
+        }
         if (!isConnected()) return;
 
-        executorService.execute(() -> {
-            try (Jedis jedis = jedisPool.getResource()) {
+        Thread thread = new Thread(() -> {
+            try (Jedis jedis = pool.getResource()) {
                 jedis.subscribe(pubSub, channels);
             } catch (Exception e) {
                 plugin.getLogger().error("Error al suscribirse a canal de Redis:", e);
             }
-        });
+        }, "grvutils-redis-pubsub");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     // Hash operations
     public void hset(String key, String field, String value) {
-        if (!isConnected()) return;
-
-        try (Jedis jedis = jedisPool.getResource()) {
-            jedis.hset(key, field, value);
-        } catch (Exception e) {
-            plugin.getLogger().error("Error al establecer valor hash en Redis:", e);
-        }
+        backend.hset(key, field, value);
     }
 
     public String hget(String key, String field) {
-        if (!isConnected()) return null;
+        return backend.hget(key, field);
+    }
+
+    public void hdel(String key, String... fields) {
+        backend.hdel(key, fields);
+    }
+
+    public Map<String, String> hgetAll(String key) {
+        return backend.hgetAll(key);
+    }
+
+    /**
+     * Valor leído de Redis con su TTL restante en milisegundos (-1 = sin expiración)
+     */
+    public static class TimedValue {
+        private final String value;
+        private final long ttlMillis;
 
-        try (Jedis jedis = jedisPool.getResource()) {
-            return jedis.hget(key, field);
-        } catch (Exception e) {
-            plugin.getLogger().error("Error al obtener valor hash de Redis:", e);
-            return null;
+        public TimedValue(String value, long ttlMillis) {
+            this.value = value;
+            this.ttlMillis = ttlMillis;
         }
+
+        public String getValue() { return value; }
+        public long getTtlMillis() { return ttlMillis; }
     }
 
-    public void hdel(String key, String... fields) {
-        if (!isConnected()) return;
+    /**
+     * Miembro de un sorted set con su puntuación
+     */
+    public static class ScoredMember {
+        private final String member;
+        private final double score;
 
-        try (Jedis jedis = jedisPool.getResource()) {
-            jedis.hdel(key, fields);
-        } catch (Exception e) {
-            plugin.getLogger().error("Error al eliminar campo hash de Redis:", e);
+        public ScoredMember(String member, double score) {
+            this.member = member;
+            this.score = score;
         }
+
+        public String getMember() { return member; }
+        public double getScore() { return score; }
+    }
+
+    // Sorted set operations
+    public Double zincrby(String key, double increment, String member) {
+        return backend.zincrby(key, increment, member);
+    }
+
+    public void zadd(String key, double score, String member) {
+        backend.zadd(key, score, member);
+    }
+
+    public Long zrevrank(String key, String member) {
+        return backend.zrevrank(key, member);
+    }
+
+    public Double zscore(String key, String member) {
+        return backend.zscore(key, member);
+    }
+
+    public List<ScoredMember> zrevrangeWithScores(String key, long start, long stop) {
+        return backend.zrevrangeWithScores(key, start, stop);
+    }
+
+    public List<String> zrangeByScore(String key, double min, double max) {
+        return backend.zrangeByScore(key, min, max);
+    }
+
+    public void zremrangeByScore(String key, double min, double max) {
+        backend.zremrangeByScore(key, min, max);
+    }
+
+    public void zrem(String key, String... members) {
+        backend.zrem(key, members);
+    }
+
+    /**
+     * Aplica de forma atómica un lote de ZADD y ZINCRBY. batchKey guarda el último
+     * número de secuencia aplicado (durante batchTtlMillis), así que reenviar un
+     * lote cuya respuesta se perdió no vuelve a sumar los incrementos.
+     * @return true si el lote está aplicado (ahora o en un envío anterior)
+     */
+    public boolean applyScoreBatch(String key, String batchKey, long sequence, Map<String, Double> scores,
+                                   Map<String, Double> increments, long batchTtlMillis) {
+        return backend.applyScoreBatch(key, batchKey, sequence, scores, increments, batchTtlMillis);
+    }
+
+    // Leases (exclusión mutua entre proxies con expiración)
+
+    /**
+     * Adquiere el lease si está libre o lo renueva si ya es de este propietario
+     * @return true si el propietario tiene el lease durante los próximos ttlMillis
+     */
+    public boolean tryAcquireLease(String key, String owner, long ttlMillis) {
+        return backend.tryAcquireLease(key, owner, ttlMillis);
+    }
+
+    /**
+     * Renueva el lease sólo si sigue siendo de este propietario
+     */
+    public boolean renewLease(String key, String owner, long ttlMillis) {
+        return backend.renewLease(key, owner, ttlMillis);
+    }
+
+    /**
+     * Libera el lease sólo si sigue siendo de este propietario
+     */
+    public boolean releaseLease(String key, String owner) {
+        return backend.releaseLease(key, owner);
+    }
+
+    /**
+     * Recorre con SCAN las claves que coinciden con el patrón, entregándolas por lotes
+     * @return true si el recorrido terminó sin errores
+     */
+    public boolean scan(String pattern, int batchSize, Consumer<List<String>> consumer) {
+        return backend.scan(pattern, batchSize, consumer);
+    }
+
+    /**
+     * Envía varios comandos en un único pipeline
+     * @return false si el lote no llegó a enviarse o algún comando falló; el
+     *         error ya se ha registrado
+     */
+    public boolean pipelined(Consumer<RedisBatch> batch) {
+        return backend.pipelined(batch);
     }
 
     // Getters
+    public RedisBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Pool de conexiones, o null si el backend no es un servidor Redis
+     */
     public JedisPool getJedisPool() {
-        return jedisPool;
+        return backend instanceof JedisBackend ? ((JedisBackend) backend).getJedisPool() : null;
+    }
+
+    public RedisPipelineMultiplexer getMultiplexer() {
+        return backend instanceof JedisBackend ? ((JedisBackend) backend).getMultiplexer() : null;
     }
 
     public ScheduledExecutorService getExecutorService() {
         return executorService;
     }
-}
\ No newline at end of file
+
+    public ExecutorService getIoExecutor() {
+        return ioExecutor;
+    }
+}
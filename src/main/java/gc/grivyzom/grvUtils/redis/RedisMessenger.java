@@ -1,12 +1,21 @@
 package gc.grivyzom.grvUtils.redis;
 
 import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import gc.grivyzom.grvUtils.GrvUtils;
-import redis.clients.jedis.JedisPubSub;
+import gc.grivyzom.grvUtils.metrics.MessagingMetrics;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
@@ -18,14 +27,38 @@ public class RedisMessenger {
     private final RedisManager redisManager;
     private final Gson gson;
     private final Map<String, Consumer<RedisMessage>> messageHandlers;
+    private final Map<String, TypedChannel<?>> typedChannels;
+    private final Map<String, TypeAdapter<?>> sendCodecs;
     private final String serverIdentifier;
+    private final String channelPrefix;
+    private final String mainChannel;
+    private final String broadcastChannel;
+    private final boolean perTypeChannels;
+    private final boolean shardedPubSub;
+    private final MessagingMetrics metrics;
+    private MessageSubscription mainSubscription;
+    private MessageSubscription typeSubscription;
+    private final ScheduledFuture<?> pruneTask;
 
     public RedisMessenger(GrvUtils plugin) {
         this.plugin = plugin;
         this.redisManager = plugin.getRedisManager();
         this.gson = new Gson();
         this.messageHandlers = new ConcurrentHashMap<>();
+        this.typedChannels = new ConcurrentHashMap<>();
+        this.sendCodecs = new ConcurrentHashMap<>();
         this.serverIdentifier = generateServerIdentifier();
+        this.channelPrefix = plugin.getConfigManager().getMessagingChannelPrefix();
+        this.mainChannel = channelPrefix + ":main";
+        this.broadcastChannel = channelPrefix + ":broadcast";
+        this.perTypeChannels = plugin.getConfigManager().isMessagingPerTypeChannels();
+        this.shardedPubSub = perTypeChannels && plugin.getConfigManager().isMessagingShardedPubSub();
+        this.metrics = new MessagingMetrics(
+                plugin.getConfigManager().getMessagingClockSkewTolerance(),
+                plugin.getConfigManager().getMessagingTraceSampleRate()
+        );
+        this.pruneTask = redisManager.getExecutorService().scheduleAtFixedRate(
+                () -> metrics.pruneIdleSenders(System.currentTimeMillis()), 1, 1, TimeUnit.MINUTES);
 
         // Suscribirse al canal principal
         subscribeToMainChannel();
@@ -37,57 +70,245 @@ public class RedisMessenger {
     }
 
     private void subscribeToMainChannel() {
-        redisManager.subscribe(new JedisPubSub() {
-            @Override
-            public void onMessage(String channel, String message) {
-                handleIncomingMessage(channel, message);
-            }
+        // Los canales generales se mantienen para recibir mensajes de versiones anteriores
+        mainSubscription = redisManager.createSubscription("messenger", false, this::handleIncomingMessage);
+        mainSubscription.subscribe(mainChannel, broadcastChannel);
 
-            @Override
-            public void onSubscribe(String channel, int subscribedChannels) {
-                plugin.getLogger().info("§a✓ §fSuscrito al canal Redis: §e" + channel);
-            }
+        typeSubscription = shardedPubSub
+                ? redisManager.createSubscription("messenger-sharded", true, this::handleIncomingMessage)
+                : mainSubscription;
+    }
 
-            @Override
-            public void onUnsubscribe(String channel, int subscribedChannels) {
-                plugin.getLogger().info("§7- §fDesuscrito del canal Redis: §e" + channel);
-            }
-        }, "grvutils:main", "grvutils:broadcast");
+    /**
+     * Canal propio de un tipo de mensaje
+     */
+    public String channelFor(String messageType) {
+        return channelPrefix + ":type:" + messageType;
+    }
+
+    private void routeType(String messageType) {
+        if (perTypeChannels) {
+            typeSubscription.subscribe(channelFor(messageType));
+        }
+    }
+
+    private CompletableFuture<Void> publish(String type, String json, String fallbackChannel) {
+        if (!perTypeChannels) {
+            return redisManager.publishAsync(fallbackChannel, json);
+        }
+
+        String channel = channelFor(type);
+        return shardedPubSub
+                ? redisManager.spublishAsync(channel, json)
+                : redisManager.publishAsync(channel, json);
+    }
+
+    private void publishTracked(String type, String json, String fallbackChannel) {
+        metrics.recordSent(type);
+        publish(type, json, fallbackChannel)
+                .whenComplete((result, throwable) -> {
+                    if (throwable != null) {
+                        plugin.getLogger().error("Error al enviar mensaje Redis:", throwable);
+                    } else if (metrics.shouldTrace()) {
+                        plugin.getLogger().info("§7[TRACE] §fMensaje Redis enviado: §e" + type);
+                    }
+                });
     }
 
     private void handleIncomingMessage(String channel, String rawMessage) {
+        long receivedAt = System.currentTimeMillis();
+        RedisMessage message;
         try {
-            RedisMessage message = gson.fromJson(rawMessage, RedisMessage.class);
-
-            // Ignorar mensajes de este mismo servidor
-            if (serverIdentifier.equals(message.getSender())) {
+            // Los mensajes tipados se decodifican directamente en su clase destino
+            if (handleTypedMessage(rawMessage, receivedAt)) {
                 return;
             }
 
-            // Buscar handler para el tipo de mensaje
-            Consumer<RedisMessage> handler = messageHandlers.get(message.getType());
-            if (handler != null) {
+            message = gson.fromJson(rawMessage, RedisMessage.class);
+        } catch (JsonParseException | IllegalStateException | IOException e) {
+            metrics.recordDecodeError();
+            plugin.getLogger().error("Error al deserializar mensaje Redis:", e);
+            return;
+        }
+
+        // Ignorar mensajes vacíos y los de este mismo servidor
+        if (message == null || serverIdentifier.equals(message.getSender())) {
+            return;
+        }
+
+        long lag = metrics.recordDelivery(message.getType(), message.getSender(),
+                message.getTimestamp(), message.getSequence(), receivedAt);
+
+        // Buscar handler para el tipo de mensaje
+        Consumer<RedisMessage> handler = messageHandlers.get(message.getType());
+        if (handler != null) {
+            long start = System.nanoTime();
+            try {
                 handler.accept(message);
+            } catch (RuntimeException e) {
+                metrics.recordFailure(message.getType(), message.getSender());
+                plugin.getLogger().error("Error en el handler de mensajes " + message.getType() + ":", e);
+            } finally {
+                afterHandler(message.getType(), message.getSender(), lag, start);
             }
+        }
+    }
+
+    private void afterHandler(String type, String sender, long lag, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        metrics.recordHandler(type, elapsed);
+
+        if (metrics.shouldTrace()) {
+            plugin.getLogger().info("§7[TRACE] §fMensaje Redis recibido: §e" + type + " §7de §e" + sender +
+                    " §7(retraso §e" + (lag >= 0 ? lag + "ms" : "?") + "§7, handler §e" +
+                    (elapsed / 1000) + "µs§7)");
+        }
+    }
+
+    /**
+     * Lee el sobre de un mensaje tipado con un lector en streaming. El campo
+     * "type" va siempre primero, así que si no hay canal tipado para ese tipo
+     * el mensaje se deja al flujo de RedisMessage.
+     */
+    private boolean handleTypedMessage(String rawMessage, long receivedAt) throws IOException {
+        JsonReader reader = new JsonReader(new StringReader(rawMessage));
+        reader.beginObject();
+        if (!reader.hasNext() || !"type".equals(reader.nextName())) return false;
 
-            if (plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().info("§7[DEBUG] §fMensaje Redis recibido: §e" +
-                        message.getType() + " §7de §e" + message.getSender());
+        String type = reader.nextString();
+        TypedChannel<?> typedChannel = typedChannels.get(type);
+        if (typedChannel == null) return false;
+
+        String sender = null;
+        long timestamp = 0;
+        long sequence = 0;
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "sender" -> sender = reader.nextString();
+                case "timestamp" -> timestamp = reader.nextLong();
+                case "sequence" -> sequence = reader.nextLong();
+                case "payload" -> {
+                    // Ignorar mensajes de este mismo servidor
+                    if (serverIdentifier.equals(sender)) return true;
+
+                    long lag = metrics.recordDelivery(type, sender, timestamp, sequence, receivedAt);
+                    deliver(typedChannel, reader, type, sender, lag);
+                    return true;
+                }
+                default -> reader.skipValue();
             }
+        }
 
-        } catch (JsonSyntaxException e) {
-            plugin.getLogger().error("Error al deserializar mensaje Redis:", e);
+        // Sobre en formato RedisMessage para un tipo que ahora es tipado
+        return false;
+    }
+
+    /**
+     * Decodifica el payload y lo entrega al handler. Los errores de formato y los
+     * del handler se contabilizan por separado.
+     */
+    private <T> void deliver(TypedChannel<T> typedChannel, JsonReader reader, String type, String sender, long lag) {
+        T payload;
+        try {
+            payload = typedChannel.codec.read(reader);
+        } catch (IOException | RuntimeException e) {
+            metrics.recordDecodeError();
+            plugin.getLogger().error("Error al deserializar mensaje Redis " + type + ":", e);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            typedChannel.handler.accept(payload);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(type, sender);
+            plugin.getLogger().error("Error al procesar mensaje Redis " + type + ":", e);
+        } finally {
+            afterHandler(type, sender, lag, start);
         }
     }
 
+    /**
+     * Registra un handler tipado; el payload se decodifica directamente en la clase indicada
+     */
+    public <T> void registerHandler(String messageType, Class<T> payloadClass, Consumer<T> handler) {
+        registerHandler(messageType, gson.getAdapter(payloadClass), handler);
+    }
+
+    /**
+     * Registra un handler tipado con un codec propio
+     */
+    public <T> void registerHandler(String messageType, TypeAdapter<T> codec, Consumer<T> handler) {
+        typedChannels.put(messageType, new TypedChannel<>(codec, handler));
+        sendCodecs.put(messageType, codec);
+        routeType(messageType);
+        plugin.getLogger().info("§a✓ §fHandler tipado registrado para tipo: §e" + messageType);
+    }
+
+    /**
+     * Registra el codec de un tipo que este servidor sólo envía. No crea handler:
+     * los mensajes recibidos de ese tipo siguen el flujo de RedisMessage.
+     */
+    public <T> void registerCodec(String messageType, Class<T> payloadClass) {
+        sendCodecs.putIfAbsent(messageType, gson.getAdapter(payloadClass));
+    }
+
+    /**
+     * Envía un mensaje tipado a todos los servidores
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void send(String type, T payload) {
+        if (payload == null) {
+            throw new IllegalArgumentException("El payload del mensaje " + type + " no puede ser null");
+        }
+
+        // Sin codec registrado se usa el adaptador de Gson, que ya se cachea por clase
+        TypeAdapter<T> codec = (TypeAdapter<T>) sendCodecs.get(type);
+        if (codec == null) {
+            codec = (TypeAdapter<T>) gson.getAdapter(payload.getClass());
+        }
+
+        String json;
+        try {
+            StringWriter buffer = new StringWriter();
+            JsonWriter writer = new JsonWriter(buffer);
+            writer.beginObject();
+            writer.name("type").value(type);
+            writer.name("sender").value(serverIdentifier);
+            writer.name("timestamp").value(System.currentTimeMillis());
+            writer.name("sequence").value(metrics.nextSequence(type));
+            writer.name("payload");
+            codec.write(writer, payload);
+            writer.endObject();
+            json = buffer.toString();
+        } catch (IOException e) {
+            plugin.getLogger().error("Error al serializar mensaje Redis:", e);
+            return;
+        }
+
+        publishTracked(type, json, mainChannel);
+    }
+
     /**
      * Registra un handler para un tipo específico de mensaje
      */
     public void registerHandler(String messageType, Consumer<RedisMessage> handler) {
         messageHandlers.put(messageType, handler);
+        routeType(messageType);
         plugin.getLogger().info("§a✓ §fHandler registrado para tipo: §e" + messageType);
     }
 
+    /**
+     * Elimina los handlers de un tipo y deja de escuchar su canal
+     */
+    public void unregisterHandler(String messageType) {
+        messageHandlers.remove(messageType);
+        typedChannels.remove(messageType);
+        if (perTypeChannels) {
+            typeSubscription.unsubscribe(channelFor(messageType));
+        }
+    }
+
     /**
      * Envía un mensaje a todos los servidores
      */
@@ -104,18 +325,12 @@ public class RedisMessenger {
                 content,
                 serverIdentifier,
                 System.currentTimeMillis(),
+                metrics.nextSequence(type),
                 data
         );
 
         String json = gson.toJson(message);
-        redisManager.publishAsync("grvutils:main", json)
-                .whenComplete((result, throwable) -> {
-                    if (throwable != null) {
-                        plugin.getLogger().error("Error al enviar mensaje Redis:", throwable);
-                    } else if (plugin.getConfigManager().isDebugEnabled()) {
-                        plugin.getLogger().info("§7[DEBUG] §fMensaje Redis enviado: §e" + type);
-                    }
-                });
+        publishTracked(type, json, mainChannel);
     }
 
     /**
@@ -134,11 +349,25 @@ public class RedisMessenger {
                 content,
                 serverIdentifier,
                 System.currentTimeMillis(),
+                metrics.nextSequence(type),
                 data
         );
 
         String json = gson.toJson(message);
-        redisManager.publishAsync("grvutils:broadcast", json);
+        publishTracked(type, json, broadcastChannel);
+    }
+
+    /**
+     * Codec y handler de un tipo de mensaje, resueltos una sola vez al registrarlo
+     */
+    private static final class TypedChannel<T> {
+        private final TypeAdapter<T> codec;
+        private final Consumer<T> handler;
+
+        private TypedChannel(TypeAdapter<T> codec, Consumer<T> handler) {
+            this.codec = codec;
+            this.handler = handler;
+        }
     }
 
     /**
@@ -149,14 +378,21 @@ public class RedisMessenger {
         private final String content;
         private final String sender;
         private final long timestamp;
+        private final long sequence;
         private final Map<String, Object> data;
 
         public RedisMessage(String type, String content, String sender,
                             long timestamp, Map<String, Object> data) {
+            this(type, content, sender, timestamp, 0, data);
+        }
+
+        public RedisMessage(String type, String content, String sender,
+                            long timestamp, long sequence, Map<String, Object> data) {
             this.type = type;
             this.content = content;
             this.sender = sender;
             this.timestamp = timestamp;
+            this.sequence = sequence;
             this.data = data;
         }
 
@@ -164,6 +400,7 @@ public class RedisMessenger {
         public String getContent() { return content; }
         public String getSender() { return sender; }
         public long getTimestamp() { return timestamp; }
+        public long getSequence() { return sequence; }
         public Map<String, Object> getData() { return data; }
 
         public <T> T getData(String key, Class<T> type) {
@@ -189,7 +426,21 @@ public class RedisMessenger {
         }
     }
 
+    public void shutdown() {
+        pruneTask.cancel(false);
+        if (typeSubscription != null && typeSubscription != mainSubscription) {
+            typeSubscription.close();
+        }
+        if (mainSubscription != null) {
+            mainSubscription.close();
+        }
+    }
+
     public String getServerIdentifier() {
         return serverIdentifier;
     }
+
+    public MessagingMetrics getMetrics() {
+        return metrics;
+    }
 }
\ No newline at end of file
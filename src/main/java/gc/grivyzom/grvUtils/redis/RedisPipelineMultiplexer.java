@@ -0,0 +1,118 @@
+package gc.grivyzom.grvUtils.redis;
+
+import gc.grivyzom.grvUtils.GrvUtils;
+import redis.clients.jedis.DefaultJedisClientConfig;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisClientConfig;
+import redis.clients.jedis.Pipeline;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Multiplexa los comandos de todos los hilos sobre unas pocas conexiones
+ * compartidas. Cada conexión tiene un hilo escritor que agrupa los comandos
+ * pendientes en un único pipeline y asigna las respuestas en orden.
+ */
+public class RedisPipelineMultiplexer {
+
+    private final PipelineLanes<Pipeline> lanes;
+
+    public RedisPipelineMultiplexer(GrvUtils plugin) {
+        String password = plugin.getConfigManager().getRedisPassword();
+        JedisClientConfig clientConfig = DefaultJedisClientConfig.builder()
+                .timeoutMillis(plugin.getConfigManager().getRedisTimeout())
+                .password(password.isEmpty() ? null : password)
+                .database(plugin.getConfigManager().getRedisDatabase())
+                .clientName("grvutils-pipeline")
+                .build();
+        HostAndPort address = new HostAndPort(
+                plugin.getConfigManager().getRedisHost(),
+                plugin.getConfigManager().getRedisPort()
+        );
+
+        this.lanes = new PipelineLanes<>(
+                plugin.getLogger(),
+                "grvutils-redis-pipeline",
+                plugin.getConfigManager().getRedisPipeliningConnections(),
+                plugin.getConfigManager().getRedisPipeliningMaxBatch(),
+                plugin.getConfigManager().getRedisPipeliningHealthCheckInterval(),
+                plugin.getConfigManager().getRedisTimeout(),
+                () -> new JedisLink(new Jedis(address, clientConfig))
+        );
+    }
+
+    /**
+     * Encola un comando en una de las conexiones compartidas. El resultado del
+     * comando se lee tras el sync(), así que puede ser un Response de Jedis o
+     * cualquier Supplier que lo consulte.
+     */
+    public <T> CompletableFuture<T> submit(Function<Pipeline, ? extends Supplier<T>> command) {
+        return lanes.submit(command);
+    }
+
+    /**
+     * Ejecuta un comando y espera su respuesta, propagando el error de Redis
+     */
+    public <T> T execute(Function<Pipeline, ? extends Supplier<T>> command) throws Exception {
+        return lanes.await(lanes.submit(command));
+    }
+
+    /**
+     * Espera la respuesta de un comando ya encolado. Si el hilo se interrumpe,
+     * el comando se abandona y se conserva el estado de interrupción
+     */
+    public <T> T await(CompletableFuture<T> future) throws Exception {
+        return lanes.await(future);
+    }
+
+    public void shutdown() {
+        lanes.shutdown();
+    }
+
+    public boolean isRunning() {
+        return lanes.isRunning();
+    }
+
+    public int getConnectionCount() {
+        return lanes.size();
+    }
+
+    /**
+     * Conexión Jedis dedicada de una vía
+     */
+    private static final class JedisLink implements PipelineLanes.Link<Pipeline> {
+        private final Jedis jedis;
+
+        private JedisLink(Jedis jedis) {
+            this.jedis = jedis;
+        }
+
+        @Override
+        public Pipeline pipeline() {
+            return jedis.pipelined();
+        }
+
+        @Override
+        public void sync(Pipeline pipeline) {
+            pipeline.sync();
+        }
+
+        @Override
+        public void ping() {
+            jedis.ping();
+        }
+
+        @Override
+        public boolean isConnected() {
+            return jedis.isConnected();
+        }
+
+        @Override
+        public void close() {
+            jedis.close();
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package gc.grivyzom.grvUtils.redis;
+
+import gc.grivyzom.grvUtils.GrvUtils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.JedisShardedPubSub;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Suscripción Pub/Sub de larga duración cuyos canales pueden cambiar en caliente.
+ * Usa SUBSCRIBE o, en modo sharded (Redis 7), SSUBSCRIBE, y se vuelve a suscribir
+ * a todos los canales si la conexión se pierde. Si se crea antes de que Redis
+ * esté listo, espera a la conexión inicial.
+ */
+public class RedisSubscription implements MessageSubscription {
+
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final GrvUtils plugin;
+    private final JedisBackend backend;
+    private final boolean sharded;
+    private final BiConsumer<String, String> listener;
+    private final Set<String> channels;
+    private final Set<String> confirmed;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile Listener active;
+    private volatile boolean established;
+
+    RedisSubscription(GrvUtils plugin, JedisBackend backend, boolean sharded,
+                      BiConsumer<String, String> listener, String name) {
+        this.plugin = plugin;
+        this.backend = backend;
+        this.sharded = sharded;
+        this.listener = listener;
+        this.channels = ConcurrentHashMap.newKeySet();
+        this.confirmed = ConcurrentHashMap.newKeySet();
+        this.thread = new Thread(this::run, "grvutils-redis-" + name);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Añade canales; si la suscripción ya está activa se envían al momento
+     */
+    @Override
+    public synchronized void subscribe(String... newChannels) {
+        boolean wasEmpty = channels.isEmpty();
+        for (String channel : newChannels) {
+            channels.add(channel);
+        }
+
+        Listener current = active;
+        if (current != null && current.isSubscribed()) {
+            current.add(newChannels);
+        } else if (wasEmpty) {
+            notifyAll();
+        }
+    }
+
+    @Override
+    public synchronized void unsubscribe(String... oldChannels) {
+        for (String channel : oldChannels) {
+            channels.remove(channel);
+        }
+
+        Listener current = active;
+        if (current != null && current.isSubscribed()) {
+            current.remove(oldChannels);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        synchronized (this) {
+            Listener current = active;
+            if (current != null && current.isSubscribed()) {
+                current.removeAll();
+            }
+            notifyAll();
+        }
+        thread.interrupt();
+    }
+
+    @Override
+    public boolean isSubscribed(String channel) {
+        return confirmed.contains(channel);
+    }
+
+    @Override
+    public boolean isSharded() {
+        return sharded;
+    }
+
+    private void run() {
+        try {
+            backend.whenReady().get();
+        } catch (InterruptedException | ExecutionException e) {
+            // Redis deshabilitado, sin conexión definitiva o plugin apagándose
+            return;
+        }
+
+        long backoff = INITIAL_BACKOFF_MILLIS;
+
+        while (running) {
+            String[] initial;
+            synchronized (this) {
+                while (running && channels.isEmpty()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!running) return;
+                initial = channels.toArray(new String[0]);
+                active = sharded ? new ShardedListener() : new ClassicListener();
+            }
+
+            established = false;
+            Exception failure = null;
+            JedisPool jedisPool = backend.getJedisPool();
+            try (Jedis jedis = jedisPool.getResource()) {
+                active.proceed(jedis, initial);
+            } catch (Exception e) {
+                if (!running) return;
+                failure = e;
+            } finally {
+                active = null;
+                confirmed.clear();
+            }
+
+            // La espera sólo vuelve al mínimo si Redis llegó a confirmar la suscripción;
+            // obtener la conexión no basta si se cae una y otra vez antes de suscribirse
+            if (established) {
+                backoff = INITIAL_BACKOFF_MILLIS;
+            }
+            if (failure != null) {
+                plugin.getLogger().error("Error en la suscripción Redis, reintentando en " + backoff + "ms:", failure);
+            }
+
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+
+    /**
+     * Tras la primera confirmación, suscribe los canales añadidos mientras se conectaba
+     */
+    private void onConfirmed(String channel) {
+        established = true;
+        confirmed.add(channel);
+        plugin.getLogger().info("§a✓ §fSuscrito al canal Redis: §e" + channel);
+
+        synchronized (this) {
+            Listener current = active;
+            if (current == null) return;
+
+            String[] missing = channels.stream()
+                    .filter(c -> !confirmed.contains(c) && !current.requested.contains(c))
+                    .toArray(String[]::new);
+            if (missing.length > 0) {
+                current.add(missing);
+            }
+        }
+    }
+
+    private void onRemoved(String channel) {
+        confirmed.remove(channel);
+        plugin.getLogger().info("§7- §fDesuscrito del canal Redis: §e" + channel);
+    }
+
+    private abstract static class Listener {
+        protected final Set<String> requested = ConcurrentHashMap.newKeySet();
+
+        abstract void proceed(Jedis jedis, String[] channels);
+
+        abstract boolean isSubscribed();
+
+        abstract void send(String[] channels);
+
+        abstract void drop(String[] channels);
+
+        abstract void removeAll();
+
+        void add(String[] channels) {
+            for (String channel : channels) {
+                requested.add(channel);
+            }
+            send(channels);
+        }
+
+        void remove(String[] channels) {
+            for (String channel : channels) {
+                requested.remove(channel);
+            }
+            drop(channels);
+        }
+    }
+
+    private final class ClassicListener extends Listener {
+        private final JedisPubSub pubSub = new JedisPubSub() {
+            @Override
+            public void onMessage(String channel, String message) {
+                listener.accept(channel, message);
+            }
+
+            @Override
+            public void onSubscribe(String channel, int subscribedChannels) {
+                onConfirmed(channel);
+            }
+
+            @Override
+            public void onUnsubscribe(String channel, int subscribedChannels) {
+                onRemoved(channel);
+            }
+        };
+
+        @Override
+        void proceed(Jedis jedis, String[] channels) {
+            for (String channel : channels) {
+                requested.add(channel);
+            }
+            jedis.subscribe(pubSub, channels);
+        }
+
+        @Override
+        boolean isSubscribed() {
+            return pubSub.isSubscribed();
+        }
+
+        @Override
+        void send(String[] channels) {
+            pubSub.subscribe(channels);
+        }
+
+        @Override
+        void drop(String[] channels) {
+            pubSub.unsubscribe(channels);
+        }
+
+        @Override
+        void removeAll() {
+            pubSub.unsubscribe();
+        }
+    }
+
+    private final class ShardedListener extends Listener {
+        private final JedisShardedPubSub pubSub = new JedisShardedPubSub() {
+            @Override
+            public void onSMessage(String channel, String message) {
+                listener.accept(channel, message);
+            }
+
+            @Override
+            public void onSSubscribe(String channel, int subscribedChannels) {
+                onConfirmed(channel);
+            }
+
+            @Override
+            public void onSUnsubscribe(String channel, int subscribedChannels) {
+                onRemoved(channel);
+            }
+        };
+
+        @Override
+        void proceed(Jedis jedis, String[] channels) {
+            for (String channel : channels) {
+                requested.add(channel);
+            }
+            pubSub.proceed(jedis.getConnection(), channels);
+        }
+
+        @Override
+        boolean isSubscribed() {
+            return pubSub.isSubscribed();
+        }
+
+        @Override
+        void send(String[] channels) {
+            pubSub.ssubscribe(channels);
+        }
+
+        @Override
+        void drop(String[] channels) {
+            pubSub.sunsubscribe(channels);
+        }
+
+        @Override
+        void removeAll() {
+            pubSub.sunsubscribe();
+        }
+    }
+}
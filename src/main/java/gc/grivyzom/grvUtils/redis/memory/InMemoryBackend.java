@@ -0,0 +1,762 @@
+package gc.grivyzom.grvUtils.redis.memory;
+
+import gc.grivyzom.grvUtils.redis.MessageSubscription;
+import gc.grivyzom.grvUtils.redis.RedisBackend;
+import gc.grivyzom.grvUtils.redis.RedisBatch;
+import gc.grivyzom.grvUtils.redis.RedisManager;
+import org.slf4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Backend para un único proxy sin servidor Redis. Guarda cadenas, hashes y
+ * sorted sets en memoria con la misma semántica que usa el plugin (TTL, leases,
+ * Pub/Sub), así que el resto de subsistemas funcionan sin cambios.
+ *
+ * Las claves caducadas se ignoran al leerlas y una rueda de temporizadores las
+ * elimina en segundo plano, sin recorrer todo el almacenamiento. No hay límite
+ * de memoria ni política de desalojo: está pensado para desarrollo y redes de
+ * un solo proxy.
+ */
+public class InMemoryBackend implements RedisBackend {
+
+    private final Logger logger;
+    private final ScheduledExecutorService scheduler;
+    private final LongSupplier clock;
+    private final long tickMillis;
+    private final TimerWheel wheel;
+    private final Map<String, Entry> store;
+    private final Set<LocalSubscription> subscriptions;
+    private final CompletableFuture<Void> ready;
+    private volatile ScheduledFuture<?> expiryTask;
+    private volatile boolean connected;
+
+    public InMemoryBackend(Logger logger, ScheduledExecutorService scheduler, long tickMillis) {
+        this(logger, scheduler, tickMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * Usa un reloj concreto en milisegundos, por ejemplo uno manual en pruebas
+     */
+    public InMemoryBackend(Logger logger, ScheduledExecutorService scheduler, long tickMillis, LongSupplier clock) {
+        this.logger = logger;
+        this.scheduler = scheduler;
+        this.clock = clock;
+        this.tickMillis = Math.max(1, tickMillis);
+        this.wheel = new TimerWheel(this.tickMillis, clock.getAsLong());
+        this.store = new ConcurrentHashMap<>();
+        this.subscriptions = ConcurrentHashMap.newKeySet();
+        this.ready = new CompletableFuture<>();
+    }
+
+    @Override
+    public synchronized CompletableFuture<Void> connect() {
+        if (expiryTask == null) {
+            expiryTask = scheduler.scheduleAtFixedRate(this::expireDue,
+                    tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+            connected = true;
+            ready.complete(null);
+        }
+        return whenReady();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public CompletableFuture<Void> whenReady() {
+        return ready.copy();
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        connected = false;
+        if (expiryTask != null) {
+            expiryTask.cancel(false);
+        }
+        for (LocalSubscription subscription : new ArrayList<>(subscriptions)) {
+            subscription.close();
+        }
+        store.clear();
+        ready.completeExceptionally(new IllegalStateException("Backend en memoria detenido"));
+    }
+
+    /**
+     * Elimina las claves cuyo temporizador ha vencido, si no se han renovado desde entonces
+     */
+    private void expireDue() {
+        try {
+            long now = clock.getAsLong();
+            for (TimerWheel.Timer timer : wheel.advance(now)) {
+                store.computeIfPresent(timer.key, (k, entry) -> entry.isExpired(now) ? null : entry);
+            }
+        } catch (Exception e) {
+            logger.error("Error al expirar claves en memoria:", e);
+        }
+    }
+
+    // Cadenas
+    @Override
+    public void set(String key, String value) {
+        write(key, value, 0);
+    }
+
+    @Override
+    public void set(String key, String value, int seconds) {
+        write(key, value, seconds > 0 ? clock.getAsLong() + seconds * 1000L : 0);
+    }
+
+    @Override
+    public String get(String key) {
+        return guard(() -> stringValue(live(key)), null, "Error al obtener valor en memoria:");
+    }
+
+    @Override
+    public void delete(String key) {
+        store.remove(key);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return live(key) != null;
+    }
+
+    @Override
+    public void expire(String key, int seconds) {
+        pexpire(key, seconds * 1000L);
+    }
+
+    @Override
+    public void set(byte[] key, byte[] value) {
+        set(decode(key), decode(value));
+    }
+
+    @Override
+    public void set(byte[] key, byte[] value, int seconds) {
+        set(decode(key), decode(value), seconds);
+    }
+
+    @Override
+    public byte[] getBytes(byte[] key) {
+        String value = get(decode(key));
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    @Override
+    public RedisManager.TimedValue getWithTtl(String key) {
+        return guard(() -> {
+            Entry entry = live(key);
+            if (entry == null) return new RedisManager.TimedValue(null, -2);
+
+            long ttl = entry.expiresAt == 0 ? -1 : Math.max(0, entry.expiresAt - clock.getAsLong());
+            return new RedisManager.TimedValue(stringValue(entry), ttl);
+        }, null, "Error al obtener valor con TTL en memoria:");
+    }
+
+    @Override
+    public List<String> mget(String... keys) {
+        List<String> values = new ArrayList<>(keys.length);
+        for (String key : keys) {
+            Entry entry = live(key);
+            values.add(entry != null && entry.value instanceof String ? (String) entry.value : null);
+        }
+        return values;
+    }
+
+    // Variantes asíncronas: las operaciones en memoria no bloquean, se completan al momento
+    @Override
+    public CompletableFuture<Void> setAsync(String key, String value) {
+        set(key, value);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> setAsync(String key, String value, int seconds) {
+        set(key, value, seconds);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<String> getAsync(String key) {
+        return CompletableFuture.completedFuture(get(key));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> mgetAsync(String... keys) {
+        return CompletableFuture.completedFuture(mget(keys));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(String key) {
+        delete(key);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> existsAsync(String key) {
+        return CompletableFuture.completedFuture(exists(key));
+    }
+
+    @Override
+    public CompletableFuture<Void> expireAsync(String key, int seconds) {
+        expire(key, seconds);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<RedisManager.TimedValue> getWithTtlAsync(String key) {
+        return CompletableFuture.completedFuture(getWithTtl(key));
+    }
+
+    // Pub/Sub local: sólo llega a las suscripciones de este proxy
+    @Override
+    public void publish(String channel, String message) {
+        for (LocalSubscription subscription : subscriptions) {
+            subscription.offer(channel, message, false);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> publishAsync(String channel, String message) {
+        publish(channel, message);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void spublish(String channel, String message) {
+        for (LocalSubscription subscription : subscriptions) {
+            subscription.offer(channel, message, true);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> spublishAsync(String channel, String message) {
+        spublish(channel, message);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public MessageSubscription createSubscription(String name, boolean sharded, BiConsumer<String, String> listener) {
+        LocalSubscription subscription = new LocalSubscription(logger, subscriptions, sharded, listener, name);
+        subscription.start();
+        return subscription;
+    }
+
+    // Hashes
+    @Override
+    public void hset(String key, String field, String value) {
+        guard(() -> store.compute(key, (k, entry) -> {
+            Entry current = entry == null || entry.isExpired(clock.getAsLong())
+                    ? new Entry(new Hash(), 0) : entry;
+            cast(current, Hash.class).put(field, value);
+            return current;
+        }), null, "Error al guardar campo en memoria:");
+    }
+
+    @Override
+    public String hget(String key, String field) {
+        return guard(() -> {
+            Hash hash = cast(live(key), Hash.class);
+            return hash != null ? hash.get(field) : null;
+        }, null, "Error al obtener campo en memoria:");
+    }
+
+    @Override
+    public void hdel(String key, String... fields) {
+        guard(() -> store.computeIfPresent(key, (k, entry) -> {
+            if (entry.isExpired(clock.getAsLong())) return null;
+
+            Hash hash = cast(entry, Hash.class);
+            for (String field : fields) {
+                hash.remove(field);
+            }
+            return hash.isEmpty() ? null : entry;
+        }), null, "Error al eliminar campo en memoria:");
+    }
+
+    @Override
+    public Map<String, String> hgetAll(String key) {
+        return guard(() -> {
+            Hash hash = cast(live(key), Hash.class);
+            return hash != null ? new HashMap<>(hash) : new HashMap<String, String>();
+        }, Collections.emptyMap(), "Error al obtener hash en memoria:");
+    }
+
+    // Sorted sets
+    @Override
+    public Double zincrby(String key, double increment, String member) {
+        double[] result = new double[1];
+        Entry entry = guard(() -> store.compute(key, (k, current) -> {
+            Entry target = sortedSetEntry(current);
+            result[0] = cast(target, SortedSet.class).increment(member, increment);
+            return target;
+        }), null, "Error al incrementar puntuación en memoria:");
+        return entry != null ? result[0] : null;
+    }
+
+    @Override
+    public void zadd(String key, double score, String member) {
+        guard(() -> store.compute(key, (k, current) -> {
+            Entry target = sortedSetEntry(current);
+            cast(target, SortedSet.class).add(member, score);
+            return target;
+        }), null, "Error al añadir puntuación en memoria:");
+    }
+
+    @Override
+    public Long zrevrank(String key, String member) {
+        return guard(() -> {
+            SortedSet set = cast(live(key), SortedSet.class);
+            return set != null ? set.reverseRank(member) : null;
+        }, null, "Error al obtener posición en memoria:");
+    }
+
+    @Override
+    public Double zscore(String key, String member) {
+        return guard(() -> {
+            SortedSet set = cast(live(key), SortedSet.class);
+            return set != null ? set.score(member) : null;
+        }, null, "Error al obtener puntuación en memoria:");
+    }
+
+    @Override
+    public List<RedisManager.ScoredMember> zrevrangeWithScores(String key, long start, long stop) {
+        return guard(() -> {
+            SortedSet set = cast(live(key), SortedSet.class);
+            return set != null ? set.reverseRange(start, stop) : new ArrayList<RedisManager.ScoredMember>();
+        }, Collections.emptyList(), "Error al obtener clasificación en memoria:");
+    }
+
+    @Override
+    public List<String> zrangeByScore(String key, double min, double max) {
+        return guard(() -> {
+            SortedSet set = cast(live(key), SortedSet.class);
+            return set != null ? set.rangeByScore(min, max) : new ArrayList<String>();
+        }, Collections.emptyList(), "Error al obtener rango en memoria:");
+    }
+
+    @Override
+    public void zremrangeByScore(String key, double min, double max) {
+        guard(() -> store.computeIfPresent(key, (k, entry) -> {
+            if (entry.isExpired(clock.getAsLong())) return null;
+
+            SortedSet set = cast(entry, SortedSet.class);
+            set.removeRangeByScore(min, max);
+            return set.isEmpty() ? null : entry;
+        }), null, "Error al eliminar rango en memoria:");
+    }
+
+    @Override
+    public void zrem(String key, String... members) {
+        guard(() -> store.computeIfPresent(key, (k, entry) -> {
+            if (entry.isExpired(clock.getAsLong())) return null;
+
+            SortedSet set = cast(entry, SortedSet.class);
+            for (String member : members) {
+                set.remove(member);
+            }
+            return set.isEmpty() ? null : entry;
+        }), null, "Error al eliminar miembro en memoria:");
+    }
+
+    @Override
+    public boolean applyScoreBatch(String key, String batchKey, long sequence, Map<String, Double> scores,
+                                   Map<String, Double> increments, long batchTtlMillis) {
+        return guard(() -> {
+            // En memoria el lote no puede perderse, pero se respeta el mismo contrato que en Redis
+            synchronized (this) {
+                String last = stringValue(live(batchKey));
+                if (last != null && Long.parseLong(last) >= sequence) return true;
+
+                write(batchKey, String.valueOf(sequence), clock.getAsLong() + Math.max(1, batchTtlMillis));
+                scores.forEach((member, score) -> zadd(key, score, member));
+                increments.forEach((member, delta) -> zincrby(key, delta, member));
+                return true;
+            }
+        }, false, "Error al aplicar lote de puntuaciones en memoria:");
+    }
+
+    // Leases
+    @Override
+    public boolean tryAcquireLease(String key, String owner, long ttlMillis) {
+        boolean[] acquired = new boolean[1];
+        long expiresAt = clock.getAsLong() + Math.max(1, ttlMillis);
+
+        store.compute(key, (k, entry) -> {
+            if (entry == null || entry.isExpired(clock.getAsLong()) || owner.equals(entry.value)) {
+                acquired[0] = true;
+                return new Entry(owner, expiresAt);
+            }
+            return entry;
+        });
+
+        if (acquired[0]) {
+            wheel.schedule(key, expiresAt);
+        }
+        return acquired[0];
+    }
+
+    @Override
+    public boolean renewLease(String key, String owner, long ttlMillis) {
+        boolean[] renewed = new boolean[1];
+        long expiresAt = clock.getAsLong() + Math.max(1, ttlMillis);
+
+        store.computeIfPresent(key, (k, entry) -> {
+            if (entry.isExpired(clock.getAsLong())) return null;
+            if (!owner.equals(entry.value)) return entry;
+
+            renewed[0] = true;
+            return new Entry(owner, expiresAt);
+        });
+
+        if (renewed[0]) {
+            wheel.schedule(key, expiresAt);
+        }
+        return renewed[0];
+    }
+
+    @Override
+    public boolean releaseLease(String key, String owner) {
+        boolean[] released = new boolean[1];
+        store.computeIfPresent(key, (k, entry) -> {
+            if (entry.isExpired(clock.getAsLong())) return null;
+            if (!owner.equals(entry.value)) return entry;
+
+            released[0] = true;
+            return null;
+        });
+        return released[0];
+    }
+
+    // Utilidades
+
+    /**
+     * Recorre las claves vivas que coinciden con el patrón glob, por lotes
+     */
+    @Override
+    public boolean scan(String pattern, int batchSize, Consumer<List<String>> consumer) {
+        Pattern regex = compileGlob(pattern);
+        int size = Math.max(1, batchSize);
+        long now = clock.getAsLong();
+
+        try {
+            List<String> batch = new ArrayList<>(size);
+            for (Map.Entry<String, Entry> entry : store.entrySet()) {
+                if (entry.getValue().isExpired(now) || !regex.matcher(entry.getKey()).matches()) continue;
+
+                batch.add(entry.getKey());
+                if (batch.size() >= size) {
+                    consumer.accept(batch);
+                    batch = new ArrayList<>(size);
+                }
+            }
+            consumer.accept(batch);
+            return true;
+        } catch (Exception e) {
+            logger.error("Error al recorrer claves en memoria:", e);
+            return false;
+        }
+    }
+
+    /**
+     * Sin red de por medio no hay nada que agrupar: los comandos se aplican al momento
+     */
+    @Override
+    public boolean pipelined(Consumer<RedisBatch> batch) {
+        return guard(() -> {
+            batch.accept(new DirectBatch());
+            return true;
+        }, false, "Error al ejecutar lote en memoria:");
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * Elimina o pone TTL a una clave existente; como en Redis, un TTL no positivo la borra
+     */
+    private void pexpire(String key, long millis) {
+        if (millis <= 0) {
+            delete(key);
+            return;
+        }
+
+        long expiresAt = clock.getAsLong() + millis;
+        Entry updated = store.computeIfPresent(key, (k, entry) ->
+                entry.isExpired(clock.getAsLong()) ? null : new Entry(entry.value, expiresAt));
+        if (updated != null) {
+            wheel.schedule(key, expiresAt);
+        }
+    }
+
+    private void write(String key, Object value, long expiresAt) {
+        store.put(key, new Entry(value, expiresAt));
+        if (expiresAt > 0) {
+            wheel.schedule(key, expiresAt);
+        }
+    }
+
+    /**
+     * Entrada de la clave o null si no existe; las caducadas se eliminan al leerlas
+     */
+    private Entry live(String key) {
+        Entry entry = store.get(key);
+        if (entry != null && entry.isExpired(clock.getAsLong())) {
+            store.remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    private Entry sortedSetEntry(Entry current) {
+        if (current == null || current.isExpired(clock.getAsLong())) {
+            return new Entry(new SortedSet(), 0);
+        }
+        return current;
+    }
+
+    private static String stringValue(Entry entry) {
+        return cast(entry, String.class);
+    }
+
+    private static <T> T cast(Entry entry, Class<T> type) {
+        if (entry == null) return null;
+        if (!type.isInstance(entry.value)) {
+            throw new IllegalStateException("WRONGTYPE: la clave no es de tipo " + type.getSimpleName());
+        }
+        return type.cast(entry.value);
+    }
+
+    private <T> T guard(Supplier<T> operation, T fallback, String errorMessage) {
+        try {
+            return operation.get();
+        } catch (RuntimeException e) {
+            logger.error(errorMessage, e);
+            return fallback;
+        }
+    }
+
+    private static String decode(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Pattern compileGlob(String glob) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+
+        for (char c : glob.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    /**
+     * Valor de una clave y su hora de expiración (0 = sin expiración). Cambiar el
+     * TTL crea una entrada nueva; hashes y sorted sets se modifican en el sitio
+     * dentro de compute.
+     */
+    private static final class Entry {
+        private final Object value;
+        private final long expiresAt;
+
+        private Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return expiresAt != 0 && expiresAt <= now;
+        }
+    }
+
+    private static final class Hash extends ConcurrentHashMap<String, String> {
+    }
+
+    /**
+     * Sorted set: puntuaciones por miembro y orden por (puntuación, miembro) como en Redis
+     */
+    private static final class SortedSet {
+        private final Map<String, Double> scores = new HashMap<>();
+        private final TreeSet<Member> order = new TreeSet<>();
+
+        synchronized void add(String member, double score) {
+            Double previous = scores.put(member, score);
+            if (previous != null) {
+                order.remove(new Member(member, previous));
+            }
+            order.add(new Member(member, score));
+        }
+
+        synchronized double increment(String member, double delta) {
+            Double previous = scores.get(member);
+            double score = previous != null ? previous + delta : delta;
+            add(member, score);
+            return score;
+        }
+
+        synchronized void remove(String member) {
+            Double previous = scores.remove(member);
+            if (previous != null) {
+                order.remove(new Member(member, previous));
+            }
+        }
+
+        synchronized Double score(String member) {
+            return scores.get(member);
+        }
+
+        synchronized Long reverseRank(String member) {
+            Double score = scores.get(member);
+            if (score == null) return null;
+            return (long) order.tailSet(new Member(member, score), false).size();
+        }
+
+        /**
+         * Rango por posición de mayor a menor; admite índices negativos como ZREVRANGE
+         */
+        synchronized List<RedisManager.ScoredMember> reverseRange(long start, long stop) {
+            int size = order.size();
+            if (start < 0) start += size;
+            if (stop < 0) stop += size;
+            start = Math.max(0, start);
+            stop = Math.min(stop, size - 1);
+
+            List<RedisManager.ScoredMember> result = new ArrayList<>();
+            if (start > stop) return result;
+
+            Iterator<Member> iterator = order.descendingIterator();
+            for (long index = 0; index <= stop && iterator.hasNext(); index++) {
+                Member member = iterator.next();
+                if (index >= start) {
+                    result.add(new RedisManager.ScoredMember(member.element, member.score));
+                }
+            }
+            return result;
+        }
+
+        synchronized List<String> rangeByScore(double min, double max) {
+            List<String> result = new ArrayList<>();
+            for (Member member : order) {
+                if (member.score > max) break;
+                if (member.score >= min) result.add(member.element);
+            }
+            return result;
+        }
+
+        synchronized void removeRangeByScore(double min, double max) {
+            Iterator<Member> iterator = order.iterator();
+            while (iterator.hasNext()) {
+                Member member = iterator.next();
+                if (member.score > max) break;
+                if (member.score >= min) {
+                    iterator.remove();
+                    scores.remove(member.element);
+                }
+            }
+        }
+
+        synchronized boolean isEmpty() {
+            return scores.isEmpty();
+        }
+    }
+
+    private static final class Member implements Comparable<Member> {
+        private final String element;
+        private final double score;
+
+        private Member(String element, double score) {
+            this.element = element;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Member other) {
+            int byScore = Double.compare(score, other.score);
+            return byScore != 0 ? byScore : element.compareTo(other.element);
+        }
+    }
+
+    /**
+     * Lote que aplica cada comando directamente sobre el almacenamiento
+     */
+    private final class DirectBatch implements RedisBatch {
+
+        @Override
+        public void set(String key, String value) {
+            InMemoryBackend.this.set(key, value);
+        }
+
+        @Override
+        public void set(String key, String value, int seconds) {
+            InMemoryBackend.this.set(key, value, seconds);
+        }
+
+        @Override
+        public void del(String key) {
+            delete(key);
+        }
+
+        @Override
+        public void pexpire(String key, long millis) {
+            InMemoryBackend.this.pexpire(key, millis);
+        }
+
+        @Override
+        public void hset(String key, String field, String value) {
+            InMemoryBackend.this.hset(key, field, value);
+        }
+
+        @Override
+        public void hdel(String key, String... fields) {
+            InMemoryBackend.this.hdel(key, fields);
+        }
+
+        @Override
+        public void zadd(String key, double score, String member) {
+            InMemoryBackend.this.zadd(key, score, member);
+        }
+
+        @Override
+        public void zincrby(String key, double increment, String member) {
+            InMemoryBackend.this.zincrby(key, increment, member);
+        }
+
+        @Override
+        public void zremrangeByScore(String key, double min, double max) {
+            InMemoryBackend.this.zremrangeByScore(key, min, max);
+        }
+    }
+}
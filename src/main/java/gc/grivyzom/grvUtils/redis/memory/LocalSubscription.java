@@ -0,0 +1,103 @@
+package gc.grivyzom.grvUtils.redis.memory;
+
+import gc.grivyzom.grvUtils.redis.MessageSubscription;
+import org.slf4j.Logger;
+
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiConsumer;
+
+/**
+ * Suscripción dentro del propio proxy. Los mensajes se encolan y un hilo propio
+ * los entrega, igual que el hilo de suscripción de Jedis, para que un publish
+ * nunca ejecute los handlers en el hilo que publica.
+ */
+class LocalSubscription implements MessageSubscription {
+
+    private final Logger logger;
+    private final Set<LocalSubscription> registry;
+    private final boolean sharded;
+    private final BiConsumer<String, String> listener;
+    private final Set<String> channels;
+    private final BlockingQueue<String[]> queue;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    LocalSubscription(Logger logger, Set<LocalSubscription> registry, boolean sharded,
+                      BiConsumer<String, String> listener, String name) {
+        this.logger = logger;
+        this.registry = registry;
+        this.sharded = sharded;
+        this.listener = listener;
+        this.channels = ConcurrentHashMap.newKeySet();
+        this.queue = new LinkedBlockingQueue<>();
+        this.thread = new Thread(this::run, "grvutils-memory-" + name);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        registry.add(this);
+        thread.start();
+    }
+
+    /**
+     * Encola el mensaje si esta suscripción escucha el canal
+     */
+    void offer(String channel, String message, boolean shardedPublish) {
+        if (running && shardedPublish == sharded && channels.contains(channel)) {
+            queue.offer(new String[]{channel, message});
+        }
+    }
+
+    @Override
+    public void subscribe(String... newChannels) {
+        for (String channel : newChannels) {
+            channels.add(channel);
+        }
+    }
+
+    @Override
+    public void unsubscribe(String... oldChannels) {
+        for (String channel : oldChannels) {
+            channels.remove(channel);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        registry.remove(this);
+        channels.clear();
+        queue.clear();
+        thread.interrupt();
+    }
+
+    @Override
+    public boolean isSubscribed(String channel) {
+        return running && channels.contains(channel);
+    }
+
+    @Override
+    public boolean isSharded() {
+        return sharded;
+    }
+
+    private void run() {
+        while (running) {
+            String[] message;
+            try {
+                message = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                listener.accept(message[0], message[1]);
+            } catch (Exception e) {
+                logger.error("Error al procesar mensaje local en " + message[0] + ":", e);
+            }
+        }
+    }
+}
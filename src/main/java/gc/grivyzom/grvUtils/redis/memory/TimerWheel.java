@@ -0,0 +1,128 @@
+package gc.grivyzom.grvUtils.redis.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rueda de temporizadores jerárquica para las expiraciones del backend en memoria.
+ *
+ * Hay cuatro niveles de 64 ranuras; la ranura de nivel n abarca 64^n ticks, así
+ * que con ticks de 100 ms cubre unos 19 días sin recorrer más que una ranura por
+ * tick. Al empezar cada bloque de un nivel superior sus temporizadores bajan al
+ * nivel que les corresponde. Los plazos más lejanos esperan en la última ranura
+ * del nivel superior y se recolocan al llegar a ella.
+ *
+ * No hay cancelación: quien recibe el aviso comprueba si la clave sigue caducada.
+ */
+final class TimerWheel {
+
+    private static final int BITS = 6;
+    private static final int SIZE = 1 << BITS;
+    private static final int MASK = SIZE - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMillis;
+    private final long origin;
+    private final List<Timer>[][] slots;
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    TimerWheel(long tickMillis, long nowMillis) {
+        this.tickMillis = Math.max(1, tickMillis);
+        this.origin = nowMillis;
+        this.slots = new List[LEVELS][SIZE];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SIZE; slot++) {
+                slots[level][slot] = new ArrayList<>();
+            }
+        }
+    }
+
+    /**
+     * Programa el aviso de una clave para la hora indicada (redondeada al tick siguiente)
+     */
+    synchronized void schedule(String key, long deadlineMillis) {
+        long tick = Math.floorDiv(deadlineMillis - origin + tickMillis - 1, tickMillis);
+        place(new Timer(key, Math.max(currentTick + 1, tick)));
+    }
+
+    /**
+     * Avanza hasta la hora actual y devuelve los temporizadores vencidos. Los avisos
+     * se entregan fuera del bloqueo para no anidarlo con el del almacenamiento.
+     */
+    List<Timer> advance(long nowMillis) {
+        List<Timer> expired = new ArrayList<>();
+        long target = Math.floorDiv(nowMillis - origin, tickMillis);
+
+        synchronized (this) {
+            while (currentTick < target) {
+                currentTick++;
+                cascade();
+
+                int index = (int) (currentTick & MASK);
+                List<Timer> due = slots[0][index];
+                if (due.isEmpty()) continue;
+
+                slots[0][index] = new ArrayList<>();
+                for (Timer timer : due) {
+                    if (timer.tick <= currentTick) {
+                        expired.add(timer);
+                    } else {
+                        place(timer);
+                    }
+                }
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Al empezar un bloque de nivel n, reparte su ranura entre los niveles inferiores.
+     * Se baja de arriba abajo para que lo que cae en un nivel intermedio también se reparta.
+     */
+    private void cascade() {
+        for (int level = LEVELS - 1; level >= 1; level--) {
+            int shift = BITS * level;
+            if ((currentTick & ((1L << shift) - 1)) != 0) continue;
+
+            int index = (int) ((currentTick >>> shift) & MASK);
+            List<Timer> timers = slots[level][index];
+            if (timers.isEmpty()) continue;
+
+            slots[level][index] = new ArrayList<>();
+            for (Timer timer : timers) {
+                place(timer);
+            }
+        }
+    }
+
+    private void place(Timer timer) {
+        // Vence en este mismo tick: la ranura actual se procesa justo después de bajar niveles
+        if (timer.tick <= currentTick) {
+            slots[0][(int) (currentTick & MASK)].add(timer);
+            return;
+        }
+
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = BITS * level;
+            if ((timer.tick >>> shift) - (currentTick >>> shift) < SIZE) {
+                slots[level][(int) ((timer.tick >>> shift) & MASK)].add(timer);
+                return;
+            }
+        }
+
+        int shift = BITS * (LEVELS - 1);
+        long lastBlock = (currentTick >>> shift) + SIZE - 1;
+        slots[LEVELS - 1][(int) (lastBlock & MASK)].add(timer);
+    }
+
+    static final class Timer {
+        final String key;
+        final long tick;
+
+        private Timer(String key, long tick) {
+            this.key = key;
+            this.tick = tick;
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package gc.grivyzom.grvUtils.scheduler;
+
+import gc.grivyzom.grvUtils.GrvUtils;
+import gc.grivyzom.grvUtils.redis.RedisManager;
+import gc.grivyzom.grvUtils.redis.RedisMessenger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Planificador de tareas a nivel de red.
+ *
+ * Cada tarea singleton tiene su propio lease en Redis
+ * (grvutils:scheduler:lease:<id>) que se renueva en cada latido, y sólo la
+ * ejecuta el proxy que lo tiene. Cada proxy compite únicamente por las tareas
+ * que tiene registradas, así que una tarea nunca queda en manos de un proxy que
+ * no la conoce. La hora de la última ejecución se guarda en Redis, así que el
+ * nuevo dueño respeta el periodo tras un cambio. Si el dueño se apaga o quita
+ * la tarea libera el lease; si muere, otro proxy lo sustituye cuando caduca.
+ *
+ * Las tareas repartidas se ejecutan en todos los proxies vivos que la tienen
+ * registrada, cada uno con su índice dentro de la lista ordenada de proxies de
+ * esa tarea. Mientras cambia la lista puede haber un periodo con partes
+ * repetidas o sin procesar.
+ */
+public class ClusterScheduler {
+
+    private static final String NODE_LEFT_MESSAGE = "scheduler_node_left";
+
+    private final GrvUtils plugin;
+    private final RedisManager redisManager;
+    private final RedisMessenger redisMessenger;
+    private final String nodeId;
+    private final String leaseKeyPrefix;
+    private final String nodesKey;
+    private final String lastRunKey;
+    private final long leaseTtlMillis;
+    private final long heartbeatMillis;
+    private final Map<String, SingletonEntry> singletonTasks;
+    private final Map<String, ShardedEntry> shardedTasks;
+    private final AtomicBoolean ticking;
+    private volatile List<String> liveNodes;
+    private volatile boolean running;
+    private ScheduledFuture<?> heartbeatTask;
+
+    public ClusterScheduler(GrvUtils plugin) {
+        this.plugin = plugin;
+        this.redisManager = plugin.getRedisManager();
+        this.redisMessenger = plugin.getRedisMessenger();
+        this.nodeId = redisMessenger.getServerIdentifier();
+        this.leaseKeyPrefix = "grvutils:scheduler:lease:";
+        this.nodesKey = "grvutils:scheduler:nodes";
+        this.lastRunKey = "grvutils:scheduler:last-run";
+        this.leaseTtlMillis = Math.max(1000, plugin.getConfigManager().getSchedulerLeaseTtl());
+        this.heartbeatMillis = Math.max(100, Math.min(leaseTtlMillis / 3,
+                plugin.getConfigManager().getSchedulerHeartbeatInterval()));
+        this.singletonTasks = new ConcurrentHashMap<>();
+        this.shardedTasks = new ConcurrentHashMap<>();
+        this.ticking = new AtomicBoolean();
+        this.liveNodes = Collections.emptyList();
+        this.running = true;
+
+        // Cuando un proxy se va, el resto reparte de nuevo y compite por sus leases al momento
+        redisMessenger.registerHandler(NODE_LEFT_MESSAGE, NodeLeft.class,
+                message -> redisManager.getExecutorService().execute(this::tick));
+    }
+
+    /**
+     * Registra una tarea que se ejecuta en un único proxy de la red cada periodo
+     */
+    public void registerSingleton(String id, long period, TimeUnit unit, Runnable task) {
+        SingletonEntry previous = singletonTasks.put(id,
+                new SingletonEntry(id, leaseKeyPrefix + id, unit.toMillis(period), task));
+        if (previous != null && previous.owner) {
+            // La nueva entrada vuelve a pujar por el lease en el siguiente latido
+            redisManager.releaseLease(previous.leaseKey, nodeId);
+        }
+        start();
+        plugin.getLogger().info("§a✓ §fTarea de red registrada: §e" + id);
+    }
+
+    /**
+     * Registra una tarea que se reparte entre todos los proxies vivos cada periodo
+     */
+    public void registerSharded(String id, long period, TimeUnit unit, ShardedTask task) {
+        shardedTasks.put(id, new ShardedEntry(id, shardNodesKey(id), unit.toMillis(period), task));
+        start();
+        plugin.getLogger().info("§a✓ §fTarea repartida registrada: §e" + id);
+    }
+
+    public void unregister(String id) {
+        SingletonEntry singleton = singletonTasks.remove(id);
+        if (singleton != null && singleton.owner) {
+            // Otro proxy que la tenga registrada la toma sin esperar a que caduque el lease
+            singleton.owner = false;
+            redisManager.releaseLease(singleton.leaseKey, nodeId);
+        }
+        if (shardedTasks.remove(id) != null) {
+            // El resto de proxies reparte de nuevo sin esperar a que caduque la entrada
+            redisManager.zrem(shardNodesKey(id), nodeId);
+        }
+    }
+
+    /**
+     * El latido empieza con la primera tarea registrada, así que los proxies sin
+     * tareas no compiten por ningún lease ni participan en el reparto
+     */
+    private synchronized void start() {
+        if (heartbeatTask != null || !running) return;
+
+        heartbeatTask = redisManager.getExecutorService().scheduleAtFixedRate(
+                this::tick, 0, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void tick() {
+        if (!running || !redisManager.isConnected()) return;
+        if (!ticking.compareAndSet(false, true)) return;
+
+        try {
+            long now = System.currentTimeMillis();
+            refreshNodes(now);
+            updateLeases(now);
+            runDueSingletons(now);
+            runDueSharded(now);
+        } catch (Exception e) {
+            plugin.getLogger().error("Error en el planificador de tareas de red:", e);
+        } finally {
+            ticking.set(false);
+        }
+    }
+
+    /**
+     * Publica el latido de este proxy, en la lista general y en la de cada tarea
+     * repartida que tiene registrada, y lee los proxies vivos de cada lista
+     */
+    private void refreshNodes(long now) {
+        boolean written = redisManager.pipelined(batch -> {
+            batch.zadd(nodesKey, now + leaseTtlMillis, nodeId);
+            batch.zremrangeByScore(nodesKey, Double.NEGATIVE_INFINITY, now);
+            for (ShardedEntry entry : shardedTasks.values()) {
+                batch.zadd(entry.nodesKey, now + leaseTtlMillis, nodeId);
+                batch.zremrangeByScore(entry.nodesKey, Double.NEGATIVE_INFINITY, now);
+            }
+        });
+        if (!written) return;
+
+        List<String> nodes = readNodes(nodesKey, now);
+        if (nodes != null) liveNodes = nodes;
+
+        for (ShardedEntry entry : shardedTasks.values()) {
+            List<String> taskNodes = readNodes(entry.nodesKey, now);
+            if (taskNodes != null) entry.nodes = taskNodes;
+        }
+    }
+
+    /**
+     * Proxies vivos de una lista, ordenados, o null si este proxy aún no aparece
+     */
+    private List<String> readNodes(String key, long now) {
+        List<String> nodes = new ArrayList<>(redisManager.zrangeByScore(key, now, Double.POSITIVE_INFINITY));
+        if (!nodes.contains(nodeId)) return null;
+
+        // Todos los proxies deben ver el mismo orden para calcular su parte
+        Collections.sort(nodes);
+        return Collections.unmodifiableList(nodes);
+    }
+
+    private String shardNodesKey(String taskId) {
+        return nodesKey + ":" + taskId;
+    }
+
+    /**
+     * Renueva o intenta tomar el lease de cada tarea singleton registrada aquí
+     */
+    private void updateLeases(long now) {
+        for (SingletonEntry entry : singletonTasks.values()) {
+            boolean acquired = redisManager.tryAcquireLease(entry.leaseKey, nodeId, leaseTtlMillis);
+            if (acquired && singletonTasks.get(entry.id) != entry) {
+                // Se ha quitado o sustituido la tarea mientras se pedía el lease
+                redisManager.releaseLease(entry.leaseKey, nodeId);
+                continue;
+            }
+            if (acquired) {
+                // Se mide desde antes de la petición, así el lease local nunca dura más que el de Redis
+                entry.leaseValidUntil = now + leaseTtlMillis;
+            }
+
+            if (acquired && !entry.owner) {
+                entry.loaded = false;
+                plugin.getLogger().info("§a✓ §fEste proxy ejecuta ahora la tarea de red §e" + entry.id);
+            } else if (!acquired && entry.owner) {
+                plugin.getLogger().info("§7- §fEste proxy ha dejado de ejecutar la tarea de red §e" + entry.id);
+            }
+            entry.owner = acquired;
+        }
+    }
+
+    private void runDueSingletons(long now) {
+        for (SingletonEntry entry : singletonTasks.values()) {
+            if (!entry.isOwned() || entry.running.get()) continue;
+
+            if (!entry.loaded) {
+                String lastRun = redisManager.hget(lastRunKey, entry.id);
+                entry.lastRun = parseLong(lastRun);
+                entry.loaded = true;
+            }
+            if (now - entry.lastRun < entry.periodMillis) continue;
+            if (!entry.running.compareAndSet(false, true)) continue;
+
+            redisManager.getIoExecutor().execute(() -> {
+                try {
+                    // Si se ha perdido el lease mientras tanto, el periodo queda para el nuevo dueño
+                    if (!entry.isOwned()) return;
+
+                    // Se anota antes de ejecutar para que el siguiente dueño no la repita
+                    entry.lastRun = now;
+                    redisManager.hset(lastRunKey, entry.id, String.valueOf(now));
+                    entry.task.run();
+                } catch (Exception e) {
+                    plugin.getLogger().error("Error en la tarea de red " + entry.id + ":", e);
+                } finally {
+                    entry.running.set(false);
+                }
+            });
+        }
+    }
+
+    private void runDueSharded(long now) {
+        for (ShardedEntry entry : shardedTasks.values()) {
+            List<String> nodes = entry.nodes;
+            int shard = nodes.indexOf(nodeId);
+            if (shard < 0) continue;
+
+            if (now - entry.lastRun < entry.periodMillis) continue;
+            if (!entry.running.compareAndSet(false, true)) continue;
+            entry.lastRun = now;
+
+            redisManager.getIoExecutor().execute(() -> {
+                try {
+                    entry.task.run(shard, nodes.size());
+                } catch (Exception e) {
+                    plugin.getLogger().error("Error en la tarea repartida " + entry.id + ":", e);
+                } finally {
+                    entry.running.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * true si este proxy tiene el lease de la tarea singleton y no ha caducado localmente
+     */
+    public boolean isLeader(String taskId) {
+        SingletonEntry entry = singletonTasks.get(taskId);
+        return entry != null && entry.isOwned();
+    }
+
+    public List<String> getLiveNodes() {
+        return liveNodes;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void shutdown() {
+        running = false;
+
+        synchronized (this) {
+            if (heartbeatTask == null) return;
+            heartbeatTask.cancel(false);
+        }
+
+        // Esperar a un latido en curso para que no vuelva a tomar el lease tras liberarlo
+        long deadline = System.currentTimeMillis() + leaseTtlMillis;
+        while (!ticking.compareAndSet(false, true) && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        // Liberar los leases y salir de la lista para que la sustitución sea inmediata
+        for (SingletonEntry entry : singletonTasks.values()) {
+            if (entry.owner) {
+                redisManager.releaseLease(entry.leaseKey, nodeId);
+                entry.owner = false;
+            }
+        }
+        redisManager.zrem(nodesKey, nodeId);
+        shardedTasks.values().forEach(entry -> redisManager.zrem(entry.nodesKey, nodeId));
+        redisMessenger.send(NODE_LEFT_MESSAGE, new NodeLeft(nodeId));
+    }
+
+    private static long parseLong(String value) {
+        if (value == null) return 0;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static final class SingletonEntry {
+        private final String id;
+        private final String leaseKey;
+        private final long periodMillis;
+        private final Runnable task;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private volatile long lastRun;
+        private volatile boolean loaded;
+        private volatile boolean owner;
+        private volatile long leaseValidUntil;
+
+        private SingletonEntry(String id, String leaseKey, long periodMillis, Runnable task) {
+            this.id = id;
+            this.leaseKey = leaseKey;
+            this.periodMillis = periodMillis;
+            this.task = task;
+        }
+
+        private boolean isOwned() {
+            return owner && System.currentTimeMillis() < leaseValidUntil;
+        }
+    }
+
+    private static final class ShardedEntry {
+        private final String id;
+        private final String nodesKey;
+        private final long periodMillis;
+        private final ShardedTask task;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private volatile long lastRun;
+        private volatile List<String> nodes = Collections.emptyList();
+
+        private ShardedEntry(String id, String nodesKey, long periodMillis, ShardedTask task) {
+            this.id = id;
+            this.nodesKey = nodesKey;
+            this.periodMillis = periodMillis;
+            this.task = task;
+        }
+    }
+
+    /**
+     * Aviso de que un proxy ha dejado el planificador
+     */
+    public static class NodeLeft {
+        private final String nodeId;
+
+        public NodeLeft(String nodeId) {
+            this.nodeId = nodeId;
+        }
+
+        public String getNodeId() {
+            return nodeId;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package gc.grivyzom.grvUtils.scheduler;
+
+/**
+ * Tarea periódica que se reparte entre los proxies vivos. Cada proxy procesa
+ * sólo su parte, por ejemplo las claves cuyo hash módulo shardCount es shard.
+ */
+@FunctionalInterface
+public interface ShardedTask {
+
+    void run(int shard, int shardCount);
+}
@@ -0,0 +1,134 @@
+package gc.grivyzom.grvUtils.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheSnapshotTest {
+
+    private static final int MAGIC = 0x47525643;
+    private static final int VERSION = 1;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void loadSkipsValueOfExpiredRecord() throws IOException {
+        long now = System.currentTimeMillis();
+        Path file = writeSnapshot(out -> {
+            record(out, now + 60_000, "first", "uno");
+            record(out, now - 1_000, "expired", "valor caducado con bytes de más");
+            record(out, now + 60_000, "last", "tres");
+        });
+
+        CacheSnapshot snapshot = CacheSnapshot.load(file);
+        assertNotNull(snapshot);
+        assertEquals(2, snapshot.pendingCount());
+        assertEquals("uno", snapshot.take("first", now).getValue());
+        assertNull(snapshot.take("expired", now));
+        assertEquals("tres", snapshot.take("last", now).getValue());
+    }
+
+    @Test
+    void tombstoneRemovesEarlierRecord() throws IOException {
+        long now = System.currentTimeMillis();
+        Path file = writeSnapshot(out -> {
+            record(out, now + 60_000, "key", "viejo");
+            tombstone(out, now + 60_000, "key");
+            record(out, now + 60_000, "other", "valor");
+        });
+
+        CacheSnapshot snapshot = CacheSnapshot.load(file);
+        assertNotNull(snapshot);
+        assertNull(snapshot.take("key", now));
+        assertEquals("valor", snapshot.take("other", now).getValue());
+    }
+
+    @Test
+    void corruptKeyLengthStopsLoading() throws IOException {
+        long now = System.currentTimeMillis();
+        Path file = writeSnapshot(out -> {
+            record(out, now + 60_000, "ok", "valor");
+            out.writeLong(now + 60_000);
+            out.writeInt(Integer.MAX_VALUE);
+            out.write(new byte[16]);
+        });
+
+        CacheSnapshot snapshot = CacheSnapshot.load(file);
+        assertNotNull(snapshot);
+        assertEquals(1, snapshot.pendingCount());
+        assertEquals("valor", snapshot.take("ok", now).getValue());
+    }
+
+    @Test
+    void writeReleasesLoadedSnapshotAndKeepsItsEntries() throws IOException {
+        long now = System.currentTimeMillis();
+        Path file = writeSnapshot(out -> {
+            record(out, now + 60_000, "read", "leído");
+            record(out, now + 60_000, "pending", "sin leer");
+        });
+
+        CacheSnapshot snapshot = CacheSnapshot.load(file);
+        assertNotNull(snapshot);
+        LocalCache cache = new LocalCache(100, 60_000);
+        cache.attachSnapshot(snapshot);
+        assertEquals("leído", cache.get("read"));
+        cache.put("fresh", "nuevo", 0);
+
+        assertEquals(3, CacheSnapshot.write(file, cache));
+        assertTrue(snapshot.isClosed(), "el mapeo anterior se libera antes de sustituir el archivo");
+        assertEquals("sin leer", cache.get("pending"));
+
+        CacheSnapshot rewritten = CacheSnapshot.load(file);
+        assertNotNull(rewritten);
+        assertEquals(3, rewritten.pendingCount());
+        assertEquals("sin leer", rewritten.take("pending", now).getValue());
+        assertEquals("nuevo", rewritten.take("fresh", now).getValue());
+    }
+
+    private Path writeSnapshot(RecordWriter writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writer.write(out);
+        out.flush();
+
+        Path file = dir.resolve("cache-snapshot.bin");
+        Files.write(file, bytes.toByteArray());
+        return file;
+    }
+
+    private static void record(DataOutputStream out, long expiresAt, String key, String value) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeLong(expiresAt);
+        out.writeInt(keyBytes.length);
+        out.write(keyBytes);
+        out.writeInt(valueBytes.length);
+        out.write(valueBytes);
+    }
+
+    private static void tombstone(DataOutputStream out, long expiresAt, String key) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        out.writeLong(expiresAt);
+        out.writeInt(keyBytes.length);
+        out.write(keyBytes);
+        out.writeInt(-1);
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
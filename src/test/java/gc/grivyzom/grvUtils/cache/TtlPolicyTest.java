@@ -0,0 +1,113 @@
+package gc.grivyzom.grvUtils.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TtlPolicyTest {
+
+    @Test
+    void globMatchesWholeKeyAndQuotesLiterals() {
+        TtlPolicy stats = policy("stats:*", 60, 0, 0, 0);
+        assertTrue(stats.matches("stats:"));
+        assertTrue(stats.matches("stats:abc:def"));
+        assertFalse(stats.matches("player:stats:abc"));
+
+        TtlPolicy single = policy("rank.?", 60, 0, 0, 0);
+        assertTrue(single.matches("rank.1"));
+        assertFalse(single.matches("rank.12"));
+        // El punto es literal, no un comodín de regex
+        assertFalse(single.matches("rankx1"));
+
+        TtlPolicy middle = policy("a*b[1]", 60, 0, 0, 0);
+        assertTrue(middle.matches("axyzb[1]"));
+        assertFalse(middle.matches("axyzb1"));
+    }
+
+    @Test
+    void physicalTtlAddsStaleWindowWithoutJitter() {
+        TtlPolicy policy = policy("*", 100, 0, 0, 30);
+        assertEquals(130, policy.physicalTtl(0));
+        assertEquals(40, policy.physicalTtl(10));
+    }
+
+    @Test
+    void physicalTtlWithoutBaseTtlNeverExpires() {
+        TtlPolicy policy = policy("*", 0, 0, 0, 30);
+        assertEquals(0, policy.physicalTtl(0));
+        assertEquals(40, policy.physicalTtl(10), "un TTL explícito se respeta aunque la política no tenga");
+    }
+
+    @Test
+    void jitterOnlyShortensTtlWithinItsFraction() {
+        TtlPolicy policy = policy("*", 100, 0.2, 0, 10);
+        for (int i = 0; i < 1_000; i++) {
+            int ttl = policy.physicalTtl(0);
+            assertTrue(ttl >= 80 + 10 && ttl <= 100 + 10, "TTL fuera de rango: " + ttl);
+        }
+
+        TtlPolicy tiny = policy("*", 1, 1, 0, 0);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(1, tiny.physicalTtl(0), "el jitter nunca deja el TTL a 0");
+        }
+    }
+
+    @Test
+    void classifyStaleWindowAndRefreshThreshold() {
+        // Recarga al consumir el 75 % de 100 s: quedan 25 s + 30 s de ventana stale
+        TtlPolicy policy = policy("*", 100, 0, 0.75, 30);
+
+        assertEquals(TtlPolicy.Freshness.FRESH, policy.classify(120_000));
+        assertEquals(TtlPolicy.Freshness.FRESH, policy.classify(55_001));
+        assertEquals(TtlPolicy.Freshness.REFRESH, policy.classify(55_000));
+        assertEquals(TtlPolicy.Freshness.REFRESH, policy.classify(30_001));
+        assertEquals(TtlPolicy.Freshness.STALE, policy.classify(30_000));
+        assertEquals(TtlPolicy.Freshness.STALE, policy.classify(0));
+    }
+
+    @Test
+    void classifyTreatsMissingTtlAsFresh() {
+        TtlPolicy policy = policy("*", 100, 0, 0.75, 30);
+        assertEquals(TtlPolicy.Freshness.FRESH, policy.classify(-1), "clave sin expiración");
+        assertEquals(TtlPolicy.Freshness.FRESH, policy.classify(-2), "clave inexistente");
+
+        TtlPolicy noTtl = policy("*", 0, 0, 0.75, 30);
+        assertEquals(TtlPolicy.Freshness.FRESH, noTtl.classify(1_000));
+        assertFalse(noTtl.needsTtl());
+    }
+
+    @Test
+    void classifyUsesExplicitTtlOfTheWrite() {
+        TtlPolicy policy = policy("*", 300, 0, 0.8, 10);
+
+        // Recién escrita con 20 s: con el TTL base parecería a punto de recargar
+        long remaining = policy.physicalTtl(20) * 1000L;
+        assertEquals(TtlPolicy.Freshness.REFRESH, policy.classify(remaining));
+        assertEquals(TtlPolicy.Freshness.FRESH, policy.classify(remaining, 20));
+
+        // Con 3 s + ventana restantes ya ha consumido más del 80 % de sus 20 s
+        assertEquals(TtlPolicy.Freshness.REFRESH, policy.classify(13_000, 20));
+        assertEquals(TtlPolicy.Freshness.STALE, policy.classify(10_000, 20));
+    }
+
+    @Test
+    void needsTtlOnlyWithRefreshOrStaleWindow() {
+        assertFalse(policy("*", 100, 0.1, 0, 0).needsTtl());
+        assertTrue(policy("*", 100, 0, 0.5, 0).needsTtl());
+        assertTrue(policy("*", 100, 0, 0, 5).needsTtl());
+    }
+
+    @Test
+    void baseTtlPrefersExplicitValue() {
+        TtlPolicy policy = policy("*", 100, 0, 0, 0);
+        assertEquals(100, policy.baseTtl(0));
+        assertEquals(100, policy.baseTtl(-5));
+        assertEquals(15, policy.baseTtl(15));
+    }
+
+    private static TtlPolicy policy(String pattern, int ttl, double jitter, double refreshAhead, int stale) {
+        return new TtlPolicy(pattern, ttl, jitter, refreshAhead, stale);
+    }
+}
@@ -0,0 +1,251 @@
+package gc.grivyzom.grvUtils.redis;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PipelineLanesTest {
+
+    private static final long WAIT_SECONDS = 5;
+
+    @Test
+    void batchesCommandsQueuedWhileSyncIsInFlight() throws Exception {
+        FakeLink link = new FakeLink(true);
+        PipelineLanes<List<String>> lanes = lanes(100, 5_000, () -> link);
+
+        CompletableFuture<String> first = lanes.submit(command("a"));
+        link.awaitSyncEntered();
+        List<CompletableFuture<String>> rest = new ArrayList<>();
+        for (String value : List.of("b", "c", "d")) {
+            rest.add(lanes.submit(command(value)));
+        }
+        link.release();
+
+        assertEquals("a", first.get(WAIT_SECONDS, TimeUnit.SECONDS));
+        for (CompletableFuture<String> future : rest) {
+            future.get(WAIT_SECONDS, TimeUnit.SECONDS);
+        }
+        assertEquals(List.of(List.of("a"), List.of("b", "c", "d")), link.batches);
+        lanes.shutdown();
+    }
+
+    @Test
+    void splitsBatchesAtMaxBatch() throws Exception {
+        FakeLink link = new FakeLink(true);
+        PipelineLanes<List<String>> lanes = lanes(2, 5_000, () -> link);
+
+        lanes.submit(command("a"));
+        link.awaitSyncEntered();
+        CompletableFuture<String> last = null;
+        for (String value : List.of("b", "c", "d", "e")) {
+            last = lanes.submit(command(value));
+        }
+        link.release();
+
+        assertEquals("e", last.get(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(List.of(List.of("a"), List.of("b", "c"), List.of("d", "e")), link.batches);
+        lanes.shutdown();
+    }
+
+    @Test
+    void cancelledCommandIsNotSent() throws Exception {
+        FakeLink link = new FakeLink(true);
+        PipelineLanes<List<String>> lanes = lanes(100, 5_000, () -> link);
+
+        lanes.submit(command("a"));
+        link.awaitSyncEntered();
+        CompletableFuture<String> cancelled = lanes.submit(command("b"));
+        CompletableFuture<String> kept = lanes.submit(command("c"));
+        cancelled.cancel(false);
+        link.release();
+
+        assertEquals("c", kept.get(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(List.of(List.of("a"), List.of("c")), link.batches);
+        lanes.shutdown();
+    }
+
+    @Test
+    void awaitTimeoutAbandonsCommand() throws Exception {
+        FakeLink link = new FakeLink(true);
+        PipelineLanes<List<String>> lanes = lanes(100, 50, () -> link);
+
+        lanes.submit(command("a"));
+        link.awaitSyncEntered();
+        CompletableFuture<String> slow = lanes.submit(command("b"));
+
+        assertThrows(TimeoutException.class, () -> lanes.await(slow));
+        assertTrue(slow.isCancelled());
+
+        CompletableFuture<String> next = lanes.submit(command("c"));
+        link.release();
+        assertEquals("c", next.get(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(List.of(List.of("a"), List.of("c")), link.batches);
+        lanes.shutdown();
+    }
+
+    @Test
+    void syncFailureFailsWholeBatchAndReconnects() throws Exception {
+        IOException lost = new IOException("conexión perdida");
+        FakeLink broken = new FakeLink(true);
+        broken.failSync = lost;
+        FakeLink healthy = new FakeLink(false);
+        AtomicInteger created = new AtomicInteger();
+        PipelineLanes<List<String>> lanes = lanes(100, 5_000,
+                () -> created.getAndIncrement() == 0 ? broken : healthy);
+
+        CompletableFuture<String> first = lanes.submit(command("a"));
+        broken.awaitSyncEntered();
+        CompletableFuture<String> second = lanes.submit(command("b"));
+        broken.release();
+
+        CompletionException error = assertThrows(CompletionException.class, first::join);
+        assertSame(lost, error.getCause());
+        assertTrue(broken.closed, "la conexión fallida se descarta");
+
+        // b va en el lote siguiente, ya por la conexión nueva
+        assertEquals("b", second.get(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(2, created.get());
+        assertEquals(List.of(List.of("b")), healthy.batches);
+        lanes.shutdown();
+    }
+
+    @Test
+    void commandErrorFailsOnlyThatCommand() throws Exception {
+        FakeLink link = new FakeLink(false);
+        PipelineLanes<List<String>> lanes = lanes(100, 5_000, () -> link);
+
+        IllegalStateException wrongType = new IllegalStateException("WRONGTYPE");
+        CompletableFuture<String> failing = lanes.submit(pipeline -> {
+            pipeline.add("x");
+            return () -> {
+                throw wrongType;
+            };
+        });
+        CompletableFuture<String> ok = lanes.submit(command("y"));
+
+        assertEquals("y", ok.get(WAIT_SECONDS, TimeUnit.SECONDS));
+        CompletionException error = assertThrows(CompletionException.class, failing::join);
+        assertSame(wrongType, error.getCause());
+        assertFalse(link.closed);
+        lanes.shutdown();
+    }
+
+    @Test
+    void shutdownFailsQueuedAndLaterCommands() throws Exception {
+        FakeLink link = new FakeLink(true);
+        PipelineLanes<List<String>> lanes = lanes(100, 5_000, () -> link);
+
+        CompletableFuture<String> inFlight = lanes.submit(command("a"));
+        link.awaitSyncEntered();
+        CompletableFuture<String> queued = lanes.submit(command("b"));
+
+        // close() desbloquea el sync() en curso, como al cerrar el socket
+        lanes.shutdown();
+
+        assertThrows(CompletionException.class, () -> joinWithin(inFlight));
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> joinWithin(queued));
+        assertTrue(error.getCause() instanceof IllegalStateException);
+
+        CompletableFuture<String> late = lanes.submit(command("c"));
+        assertTrue(late.isCompletedExceptionally());
+    }
+
+    private static PipelineLanes<List<String>> lanes(int maxBatch, long timeoutMillis,
+                                                     Supplier<PipelineLanes.Link<List<String>>> links) {
+        return new PipelineLanes<>(LoggerFactory.getLogger(PipelineLanesTest.class), "test-pipeline",
+                1, maxBatch, 60_000, timeoutMillis, links);
+    }
+
+    private static Function<List<String>, Supplier<String>> command(String value) {
+        return pipeline -> {
+            pipeline.add(value);
+            return () -> value;
+        };
+    }
+
+    private static <T> T joinWithin(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get(WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    /**
+     * Conexión simulada: el pipeline es la lista de comandos encolados. Si se
+     * pide, el primer sync() espera a release() para poder encolar más mientras tanto.
+     */
+    private static final class FakeLink implements PipelineLanes.Link<List<String>> {
+        private final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch syncEntered = new CountDownLatch(1);
+        private final CountDownLatch released;
+        private volatile Exception failSync;
+        private volatile boolean closed;
+
+        private FakeLink(boolean blockFirstSync) {
+            this.released = new CountDownLatch(blockFirstSync ? 1 : 0);
+        }
+
+        void awaitSyncEntered() throws InterruptedException {
+            assertTrue(syncEntered.await(WAIT_SECONDS, TimeUnit.SECONDS), "el primer sync() no empezó");
+        }
+
+        void release() {
+            released.countDown();
+        }
+
+        @Override
+        public List<String> pipeline() {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public void sync(List<String> pipeline) throws Exception {
+            syncEntered.countDown();
+            released.await(WAIT_SECONDS, TimeUnit.SECONDS);
+            if (closed) throw new IOException("conexión cerrada");
+
+            Exception failure = failSync;
+            if (failure != null) {
+                failSync = null;
+                throw failure;
+            }
+            batches.add(pipeline);
+        }
+
+        @Override
+        public void ping() {
+        }
+
+        @Override
+        public boolean isConnected() {
+            return !closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            released.countDown();
+        }
+    }
+}
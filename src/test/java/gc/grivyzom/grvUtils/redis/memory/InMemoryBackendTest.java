@@ -0,0 +1,85 @@
+package gc.grivyzom.grvUtils.redis.memory;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryBackendTest {
+
+    private static final String KEY = "grvutils:test:leader";
+
+    // Reloj manual: las caducidades se comprueban al leer, sin esperar
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    // Las caducidades no dependen de la tarea de expiración, así que no hace falta connect()
+    private final InMemoryBackend backend =
+            new InMemoryBackend(LoggerFactory.getLogger(InMemoryBackendTest.class), null, 100, now::get);
+
+    @Test
+    void acquireIsExclusiveUntilReleased() {
+        assertTrue(backend.tryAcquireLease(KEY, "a", 10_000));
+        assertFalse(backend.tryAcquireLease(KEY, "b", 10_000));
+
+        assertFalse(backend.releaseLease(KEY, "b"), "otro dueño no puede liberar");
+        assertTrue(backend.releaseLease(KEY, "a"));
+        assertFalse(backend.releaseLease(KEY, "a"), "ya liberado");
+
+        assertTrue(backend.tryAcquireLease(KEY, "b", 10_000));
+    }
+
+    @Test
+    void ownerCanReacquire() {
+        assertTrue(backend.tryAcquireLease(KEY, "a", 10_000));
+        assertTrue(backend.tryAcquireLease(KEY, "a", 10_000));
+    }
+
+    @Test
+    void renewOnlyForCurrentOwner() {
+        assertFalse(backend.renewLease(KEY, "a", 10_000), "sin lease no se renueva");
+
+        assertTrue(backend.tryAcquireLease(KEY, "a", 10_000));
+        assertTrue(backend.renewLease(KEY, "a", 10_000));
+        assertFalse(backend.renewLease(KEY, "b", 10_000));
+    }
+
+    @Test
+    void expiredLeaseCanBeTakenByAnotherOwner() {
+        assertTrue(backend.tryAcquireLease(KEY, "a", 50));
+        now.addAndGet(49);
+        assertFalse(backend.tryAcquireLease(KEY, "b", 10_000), "aún no ha caducado");
+        now.addAndGet(1);
+
+        assertFalse(backend.renewLease(KEY, "a", 10_000), "un lease caducado no se renueva");
+        assertFalse(backend.releaseLease(KEY, "a"), "un lease caducado no se libera");
+        assertTrue(backend.tryAcquireLease(KEY, "b", 10_000));
+    }
+
+    @Test
+    void renewExtendsExpiry() {
+        assertTrue(backend.tryAcquireLease(KEY, "a", 150));
+        now.addAndGet(100);
+        assertTrue(backend.renewLease(KEY, "a", 10_000));
+        now.addAndGet(100);
+
+        assertFalse(backend.tryAcquireLease(KEY, "b", 10_000));
+        now.addAndGet(10_000);
+        assertTrue(backend.tryAcquireLease(KEY, "b", 10_000));
+    }
+
+    @Test
+    void valueWithTtlExpiresOnRead() {
+        backend.set("grvutils:test:value", "v", 2);
+        now.addAndGet(500);
+        assertEquals(1_500L, backend.getWithTtl("grvutils:test:value").getTtlMillis());
+
+        now.addAndGet(1_500);
+        assertNull(backend.get("grvutils:test:value"));
+        assertEquals(-2L, backend.getWithTtl("grvutils:test:value").getTtlMillis());
+    }
+}
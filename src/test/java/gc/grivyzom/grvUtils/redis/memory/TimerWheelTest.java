@@ -0,0 +1,110 @@
+package gc.grivyzom.grvUtils.redis.memory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelTest {
+
+    // Con ticks de 1 ms los plazos coinciden con el número de tick
+    private static final long LEVEL_1 = 64;
+    private static final long LEVEL_2 = 64 * 64;
+    private static final long LEVEL_3 = 64 * 64 * 64;
+    private static final long RANGE = 64L * 64 * 64 * 64;
+
+    @Test
+    void firesEachTimerOnItsTickAcrossLevelBoundaries() {
+        TimerWheel wheel = new TimerWheel(1, 0);
+        long[] deadlines = {
+                1, LEVEL_1 - 1, LEVEL_1, LEVEL_1 + 1,
+                LEVEL_2 - 1, LEVEL_2, LEVEL_2 + 5,
+                LEVEL_3 - 1, LEVEL_3, LEVEL_3 + LEVEL_1 + 3
+        };
+        for (long deadline : deadlines) {
+            wheel.schedule("t" + deadline, deadline);
+        }
+
+        Map<String, Long> firedAt = new HashMap<>();
+        for (long now = 1; now <= LEVEL_3 + LEVEL_1 + 3; now++) {
+            for (TimerWheel.Timer timer : wheel.advance(now)) {
+                assertEquals(null, firedAt.put(timer.key, now), "aviso repetido de " + timer.key);
+            }
+        }
+
+        assertEquals(deadlines.length, firedAt.size());
+        for (long deadline : deadlines) {
+            assertEquals(deadline, (long) firedAt.get("t" + deadline), "tick del aviso t" + deadline);
+        }
+    }
+
+    @Test
+    void singleAdvanceCollectsEverythingDue() {
+        TimerWheel wheel = new TimerWheel(1, 0);
+        wheel.schedule("a", 10);
+        wheel.schedule("b", LEVEL_1 + 10);
+        wheel.schedule("c", LEVEL_2 + 10);
+        wheel.schedule("later", LEVEL_2 + 11);
+
+        List<String> expired = keys(wheel.advance(LEVEL_2 + 10));
+        assertEquals(List.of("a", "b", "c"), sorted(expired));
+        assertEquals(List.of("later"), keys(wheel.advance(LEVEL_2 + 11)));
+    }
+
+    @Test
+    void timerScheduledAfterAdvanceCountsFromCurrentTick() {
+        TimerWheel wheel = new TimerWheel(1, 0);
+        wheel.advance(LEVEL_1 - 2);
+
+        // Cae en el bloque siguiente de nivel 1 aunque la distancia sea menor que 64
+        wheel.schedule("k", LEVEL_1 + 3);
+        assertTrue(wheel.advance(LEVEL_1 + 2).isEmpty());
+        assertEquals(List.of("k"), keys(wheel.advance(LEVEL_1 + 3)));
+    }
+
+    @Test
+    void pastDeadlineFiresOnNextTick() {
+        TimerWheel wheel = new TimerWheel(1, 0);
+        wheel.advance(100);
+        wheel.schedule("k", 50);
+
+        assertEquals(List.of("k"), keys(wheel.advance(101)));
+    }
+
+    @Test
+    void deadlineBeyondRangeIsRescheduled() {
+        TimerWheel wheel = new TimerWheel(1, 0);
+        wheel.schedule("far", RANGE + 10);
+
+        assertTrue(wheel.advance(RANGE + 9).isEmpty());
+        assertEquals(List.of("far"), keys(wheel.advance(RANGE + 10)));
+    }
+
+    @Test
+    void roundsDeadlineUpToNextTick() {
+        TimerWheel wheel = new TimerWheel(100, 1_000);
+        wheel.schedule("k", 1_250);
+
+        assertTrue(wheel.advance(1_299).isEmpty());
+        assertEquals(List.of("k"), keys(wheel.advance(1_300)));
+    }
+
+    private static List<String> keys(List<TimerWheel.Timer> timers) {
+        List<String> keys = new ArrayList<>();
+        for (TimerWheel.Timer timer : timers) {
+            keys.add(timer.key);
+        }
+        return keys;
+    }
+
+    private static List<String> sorted(List<String> keys) {
+        List<String> copy = new ArrayList<>(keys);
+        copy.sort(null);
+        return copy;
+    }
+}